@@ -0,0 +1,460 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Append-only store of the aggregates of previous builds.
+ *
+ * <p>
+ * The store consists of three files:
+ * </p>
+ * <ul>
+ * <li>{@code identifiers.txt}: dictionary of mojo and module names (one per line; the line number is the id)</li>
+ * <li>{@code runs.dat}: run records (timestamp, commit and the count and total duration per id)</li>
+ * <li>{@code runs.idx}: fixed size index entries (offset and length of the record, and timestamp) per run</li>
+ * </ul>
+ * <p>
+ * A record is written before its index entry, so an interrupted build never leaves a partial run visible; a torn last
+ * line of the identifiers (that no indexed run refers to) is ignored, and replaced by the next build. Reading the
+ * baseline maps only the tail of the index and the records it points to; the cost does not depend on the number of builds
+ * in the store.
+ * </p>
+ */
+final class BuildHistory {
+
+    private static final String IDENTIFIERS = "identifiers.txt";
+    private static final String RUNS = "runs.dat";
+    private static final String INDEX = "runs.idx";
+
+    /**
+     * Index entry: offset (long), length (int) and timestamp (long).
+     */
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES;
+    /**
+     * Record entry: kind (byte), id (int), count (long) and total (long).
+     */
+    private static final int RECORD_ENTRY_SIZE = 1 + Integer.BYTES + Long.BYTES + Long.BYTES;
+
+    private static final byte KIND_EXECUTION = 0;
+    private static final byte KIND_MODULE = 1;
+
+    private final File directory;
+
+    BuildHistory(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the most recent runs.
+     * @param runs maximum number of runs to read
+     * @return runs, oldest first
+     * @throws IOException if the store could not be read
+     */
+    List<Run> readRecent(final int runs) throws IOException {
+        final File indexFile = new File(directory, INDEX);
+        final File runsFile = new File(directory, RUNS);
+        if (runs <= 0 || !indexFile.isFile() || !runsFile.isFile()) {
+            return Collections.emptyList();
+        }
+
+        final List<String> identifiers = readIdentifiers();
+        final List<Run> result = new ArrayList<>();
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+             FileChannel data = FileChannel.open(runsFile.toPath(), StandardOpenOption.READ)) {
+            // Ignore a partially written entry at the end of the index
+            final long entries = index.size() / INDEX_ENTRY_SIZE;
+            final long first = Math.max(0, entries - runs);
+            final MappedByteBuffer tail = index.map(FileChannel.MapMode.READ_ONLY, first * INDEX_ENTRY_SIZE,
+                    (entries - first) * INDEX_ENTRY_SIZE);
+            while (tail.remaining() >= INDEX_ENTRY_SIZE) {
+                final long offset = tail.getLong();
+                final int length = tail.getInt();
+                tail.getLong(); // Timestamp; also part of the record
+                if (offset + length <= data.size()) {
+                    result.add(decode(data.map(FileChannel.MapMode.READ_ONLY, offset, length), identifiers));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Append a run to the store.
+     * @param run run
+     * @throws IOException if the store could not be written
+     */
+    void append(final Run run) throws IOException {
+        Files.createDirectories(directory.toPath());
+        try (FileChannel index = FileChannel.open(new File(directory, INDEX).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Released when the channel is closed
+            index.lock();
+            final Map<String, Integer> ids = new HashMap<>();
+            final byte[] content = readIdentifierBytes();
+            final int length = completeLength(content);
+            final List<String> identifiers = decodeIdentifiers(content, length);
+            for (int id = 0; id < identifiers.size(); id++) {
+                ids.put(identifiers.get(id), id);
+            }
+            final List<String> added = new ArrayList<>();
+            final ByteBuffer record = encode(run, name -> ids.computeIfAbsent(name, key -> {
+                added.add(key);
+                return ids.size();
+            }));
+            appendIdentifiers(length, added);
+
+            final long offset;
+            try (FileChannel data = FileChannel.open(new File(directory, RUNS).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                offset = data.size();
+                write(data, offset, record);
+                data.force(false);
+            }
+
+            final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            entry.putLong(offset).putInt(record.capacity()).putLong(run.getTimestamp()).flip();
+            // Overwrite a partially written entry of an interrupted build
+            write(index, index.size() / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE, entry);
+        }
+    }
+
+    private static void write(final FileChannel channel, final long position, final ByteBuffer buffer) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    private List<String> readIdentifiers() throws IOException {
+        final byte[] content = readIdentifierBytes();
+        return decodeIdentifiers(content, completeLength(content));
+    }
+
+    private byte[] readIdentifierBytes() throws IOException {
+        final File file = new File(directory, IDENTIFIERS);
+        return file.isFile() ? Files.readAllBytes(file.toPath()) : new byte[0];
+    }
+
+    /**
+     * @return length of the complete lines; a last line without line separator was torn by an interrupted build
+     */
+    static int completeLength(final byte[] content) {
+        int length = content.length;
+        while (length > 0 && content[length - 1] != '\n') {
+            length--;
+        }
+        return length;
+    }
+
+    private static List<String> decodeIdentifiers(final byte[] content, final int length) {
+        final List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (content[i] == '\n') {
+                final int end = i > start && content[i - 1] == '\r' ? i - 1 : i;
+                result.add(new String(content, start, end - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+    private void appendIdentifiers(final int length, final List<String> identifiers) throws IOException {
+        if (identifiers.isEmpty()) {
+            return;
+        }
+        final StringBuilder lines = new StringBuilder();
+        for (final String identifier : identifiers) {
+            lines.append(identifier).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(new File(directory, IDENTIFIERS).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            // Drop a torn last line (its run was never indexed), so the ids stay equal to the line numbers
+            channel.truncate(length);
+            write(channel, length, ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+            channel.force(false);
+        }
+    }
+
+    private static ByteBuffer encode(final Run run, final ToIntFunction<String> ids) {
+        final byte[] commit = run.getCommit() == null ? new byte[0] : run.getCommit().getBytes(StandardCharsets.UTF_8);
+        final int entries = run.getExecutions().size() + run.getModules().size();
+        final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Short.BYTES + commit.length + Integer.BYTES + entries * RECORD_ENTRY_SIZE);
+        buffer.putLong(run.getTimestamp());
+        buffer.putShort((short) commit.length).put(commit);
+        buffer.putInt(entries);
+        encode(buffer, KIND_EXECUTION, run.getExecutions(), ids);
+        encode(buffer, KIND_MODULE, run.getModules(), ids);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void encode(final ByteBuffer buffer, final byte kind, final Map<String, Sample> samples,
+                               final ToIntFunction<String> ids) {
+        for (final Map.Entry<String, Sample> sample : samples.entrySet()) {
+            buffer.put(kind).putInt(ids.applyAsInt(sample.getKey())).putLong(sample.getValue().getCount()).putLong(sample.getValue().getTotal());
+        }
+    }
+
+    private static Run decode(final ByteBuffer buffer, final List<String> identifiers) {
+        final long timestamp = buffer.getLong();
+        final byte[] commit = new byte[buffer.getShort()];
+        buffer.get(commit);
+        final Run run = new Run(timestamp, commit.length == 0 ? null : new String(commit, StandardCharsets.UTF_8));
+        final int entries = buffer.getInt();
+        for (int entry = 0; entry < entries; entry++) {
+            final byte kind = buffer.get();
+            final int id = buffer.getInt();
+            final Sample sample = new Sample(buffer.getLong(), buffer.getLong());
+            if (id < identifiers.size()) {
+                (kind == KIND_MODULE ? run.modules : run.executions).put(identifiers.get(id), sample);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Determine the commit the build directory is checked out at.
+     * @param baseDirectory base directory of the build
+     * @return commit hash, or null if the directory is not a git work tree (or the commit could not be determined)
+     */
+    static String readGitCommit(final File baseDirectory) {
+        try {
+            File git = new File(baseDirectory, ".git");
+            if (git.isFile()) {
+                // Work tree or submodule: "gitdir: <path>"
+                final String gitdir = new String(Files.readAllBytes(git.toPath()), StandardCharsets.UTF_8).trim();
+                if (!gitdir.startsWith("gitdir:")) {
+                    return null;
+                }
+                git = new File(gitdir.substring("gitdir:".length()).trim());
+                if (!git.isAbsolute()) {
+                    git = new File(baseDirectory, git.getPath());
+                }
+            }
+            final File head = new File(git, "HEAD");
+            if (!head.isFile()) {
+                return null;
+            }
+            final String value = new String(Files.readAllBytes(head.toPath()), StandardCharsets.UTF_8).trim();
+            if (!value.startsWith("ref:")) {
+                // Detached head
+                return value;
+            }
+            final String ref = value.substring("ref:".length()).trim();
+            final File refFile = new File(git, ref);
+            if (refFile.isFile()) {
+                return new String(Files.readAllBytes(refFile.toPath()), StandardCharsets.UTF_8).trim();
+            }
+            final File packedRefs = new File(git, "packed-refs");
+            if (packedRefs.isFile()) {
+                for (final String line : Files.readAllLines(packedRefs.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.endsWith(" " + ref)) {
+                        return line.substring(0, line.indexOf(' '));
+                    }
+                }
+            }
+            return null;
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compare a run with the median of previous runs.
+     * @param current current run
+     * @param baseline previous runs
+     * @param minimumRuns minimum number of previous runs that must contain a mojo or module to compare it
+     * @param threshold relative increase (0.2 is 20% slower) above which a mojo or module is reported
+     * @param minimumIncrease minimum absolute increase (in nanoseconds) to report a mojo or module
+     * @return regressions, largest increase first
+     */
+    static List<Regression> compare(final Run current, final List<Run> baseline, final int minimumRuns, final double threshold,
+                                    final long minimumIncrease) {
+        final List<Regression> result = new ArrayList<>();
+        // Mojos are compared on their average duration (the number of executions depends on the modules that are built)
+        compare(result, "mojo", current.getExecutions(), baseline, false, minimumRuns, threshold, minimumIncrease);
+        compare(result, "module", current.getModules(), baseline, true, minimumRuns, threshold, minimumIncrease);
+        result.sort((a, b) -> Long.compare(b.getCurrent() - b.getBaseline(), a.getCurrent() - a.getBaseline()));
+        return result;
+    }
+
+    private static void compare(final List<Regression> result, final String kind, final Map<String, Sample> current,
+                                final List<Run> baseline, final boolean modules, final int minimumRuns, final double threshold,
+                                final long minimumIncrease) {
+        for (final Map.Entry<String, Sample> sample : current.entrySet()) {
+            final List<Long> previous = new ArrayList<>();
+            for (final Run run : baseline) {
+                final Sample previousSample = (modules ? run.getModules() : run.getExecutions()).get(sample.getKey());
+                if (previousSample != null) {
+                    previous.add(modules ? previousSample.getTotal() : previousSample.getAverage());
+                }
+            }
+            if (previous.isEmpty() || previous.size() < minimumRuns) {
+                continue;
+            }
+            final long median = median(previous);
+            final long value = modules ? sample.getValue().getTotal() : sample.getValue().getAverage();
+            if (value - median >= minimumIncrease && value > median * (1 + threshold)) {
+                result.add(new Regression(kind, sample.getKey(), value, median));
+            }
+        }
+    }
+
+    /**
+     * Determine the median of the average duration of the mojos over previous runs.
+     * @param runs previous runs
+     * @return median duration (in nanoseconds) per mojo
+     */
+    static Map<String, Long> medianAverages(final List<Run> runs) {
+        final Map<String, List<Long>> averages = new HashMap<>();
+        for (final Run run : runs) {
+            for (final Map.Entry<String, Sample> sample : run.getExecutions().entrySet()) {
+                averages.computeIfAbsent(sample.getKey(), key -> new ArrayList<>()).add(sample.getValue().getAverage());
+            }
+        }
+        final Map<String, Long> result = new HashMap<>();
+        for (final Map.Entry<String, List<Long>> average : averages.entrySet()) {
+            result.put(average.getKey(), median(average.getValue()));
+        }
+        return result;
+    }
+
+    private static long median(final List<Long> values) {
+        Collections.sort(values);
+        final int middle = values.size() / 2;
+        return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+    }
+
+    /**
+     * Aggregates of a single build.
+     */
+    static final class Run {
+        private final long timestamp;
+        private final String commit;
+        private final SortedMap<String, Sample> executions = new TreeMap<>();
+        private final SortedMap<String, Sample> modules = new TreeMap<>();
+
+        /**
+         * Constructor.
+         * @param timestamp start of the build (milliseconds since the epoch)
+         * @param commit git commit of the build (can be null)
+         */
+        Run(final long timestamp, final String commit) {
+            this.timestamp = timestamp;
+            this.commit = commit;
+        }
+
+        void addExecution(final String identifier, final long count, final long total) {
+            executions.put(identifier, new Sample(count, total));
+        }
+
+        void addModule(final String module, final long count, final long total) {
+            modules.put(module, new Sample(count, total));
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        String getCommit() {
+            return commit;
+        }
+
+        Map<String, Sample> getExecutions() {
+            return executions;
+        }
+
+        Map<String, Sample> getModules() {
+            return modules;
+        }
+    }
+
+    /**
+     * Number of executions and total duration (in nanoseconds).
+     */
+    static final class Sample {
+        private final long count;
+        private final long total;
+
+        Sample(final long count, final long total) {
+            this.count = count;
+            this.total = total;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        long getAverage() {
+            return count == 0 ? 0 : total / count;
+        }
+    }
+
+    /**
+     * Mojo or module that is slower than the baseline.
+     */
+    static final class Regression {
+        private final String kind;
+        private final String name;
+        private final long current;
+        private final long baseline;
+
+        Regression(final String kind, final String name, final long current, final long baseline) {
+            this.kind = kind;
+            this.name = name;
+            this.current = current;
+            this.baseline = baseline;
+        }
+
+        /**
+         * @return "mojo" or "module"
+         */
+        String getKind() {
+            return kind;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return duration in the current build (average per execution for mojos, total for modules)
+         */
+        long getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return median duration in the previous builds
+         */
+        long getBaseline() {
+            return baseline;
+        }
+
+        /**
+         * @return relative increase (0.2 is 20% slower)
+         */
+        double getIncrease() {
+            return baseline == 0 ? Double.POSITIVE_INFINITY : (current - baseline) / (double) baseline;
+        }
+    }
+}
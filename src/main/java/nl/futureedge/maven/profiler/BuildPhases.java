@@ -0,0 +1,172 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Breakdown of the build in phases, including the time Maven spends outside of mojos.
+ *
+ * <p>
+ * The phases before and after the session are measured on the wall clock, from the lifecycle events of Maven. Within the
+ * session the time of the projects is split in the time spent in mojos, the gaps between consecutive mojos of a project,
+ * the time a project spent before its first and after its last mojo, and the time threads were not building a project
+ * at all. These are thread times: with a multithreaded build they add up to the wall clock time of the session times the
+ * number of threads.
+ * </p>
+ */
+final class BuildPhases {
+
+    private volatile long startup = -1;
+    private volatile Long executionStarted;
+    private volatile Long discoveryStarted;
+    private volatile Long sessionStarted;
+    private volatile Long sessionEnded;
+    private volatile Long executionEnded;
+
+    /**
+     * Record the time between the start of the JVM and the start of the execution (startup of Maven, loading of core
+     * extensions, building the settings and toolchains).
+     * @param duration duration (in nanoseconds)
+     */
+    void startup(final long duration) {
+        startup = duration;
+    }
+
+    /**
+     * Record a lifecycle event; only the first start and end of each phase are used.
+     * @param identifier event identifier
+     * @param start true, if the event is the start of a phase
+     * @param time time of the event (in nanoseconds)
+     */
+    void mark(final String identifier, final boolean start, final long time) {
+        switch (identifier) {
+            case Event.EXECUTION:
+                if (start && executionStarted == null) {
+                    executionStarted = time;
+                } else if (!start && executionEnded == null) {
+                    executionEnded = time;
+                }
+                break;
+            case Event.PROJECT_DISCOVERY:
+                if (start && discoveryStarted == null) {
+                    discoveryStarted = time;
+                }
+                break;
+            case Event.SESSION:
+                if (start && sessionStarted == null) {
+                    sessionStarted = time;
+                } else if (!start && sessionEnded == null) {
+                    sessionEnded = time;
+                }
+                break;
+            default:
+                // Not a phase
+        }
+    }
+
+    /**
+     * Determine the phases of the build.
+     * @param timeline build timeline (for the breakdown of the session)
+     * @return phases (in order of execution); phases of which the start or end was not recorded are left out
+     */
+    List<Phase> determine(final BuildTimeline timeline) {
+        final List<Phase> result = new ArrayList<>();
+        if (startup >= 0) {
+            result.add(new Phase("startup and extension loading", startup, false));
+        }
+        addPhase(result, "repository session setup", executionStarted, discoveryStarted);
+        addPhase(result, "project discovery and model building", discoveryStarted, sessionStarted);
+        if (addPhase(result, "session (wall clock)", sessionStarted, sessionEnded)) {
+            addSessionBreakdown(result, timeline, sessionEnded - sessionStarted);
+        }
+        addPhase(result, "session end", sessionEnded, executionEnded);
+        if (executionStarted != null && executionEnded != null) {
+            result.add(new Phase("total", Math.max(0, startup) + executionEnded - executionStarted, false));
+        }
+        return result;
+    }
+
+    private static boolean addPhase(final List<Phase> phases, final String name, final Long start, final Long end) {
+        if (start == null || end == null) {
+            return false;
+        }
+        phases.add(new Phase(name, Math.max(0, end - start), false));
+        return true;
+    }
+
+    private static void addSessionBreakdown(final List<Phase> phases, final BuildTimeline timeline, final long session) {
+        final List<BuildTimeline.Project> projects = timeline.getFinishedProjects();
+        if (projects.isEmpty()) {
+            return;
+        }
+        long mojos = 0;
+        long gaps = 0;
+        long scheduling = 0;
+        long building = 0;
+        for (final BuildTimeline.Project project : projects) {
+            final List<BuildTimeline.Mojo> executions = project.getMojos();
+            building += project.getDuration();
+            if (executions.isEmpty()) {
+                scheduling += project.getDuration();
+                continue;
+            }
+            executions.sort(Comparator.comparingLong(BuildTimeline.Mojo::getStart));
+            final long first = executions.get(0).getStart();
+            long last = first;
+            long busy = 0;
+            // Union of the mojo intervals; forked executions overlap the mojo that forked them
+            long intervalStart = first;
+            long intervalEnd = first;
+            for (final BuildTimeline.Mojo mojo : executions) {
+                if (mojo.getStart() > intervalEnd) {
+                    busy += intervalEnd - intervalStart;
+                    intervalStart = mojo.getStart();
+                }
+                intervalEnd = Math.max(intervalEnd, mojo.getEnd());
+                last = Math.max(last, mojo.getEnd());
+            }
+            busy += intervalEnd - intervalStart;
+            mojos += busy;
+            gaps += last - first - busy;
+            scheduling += Math.max(0, project.getDuration() - (last - first));
+        }
+        phases.add(new Phase("mojos", mojos, true));
+        phases.add(new Phase("gaps between mojos", gaps, true));
+        phases.add(new Phase("project scheduling (before the first and after the last mojo)", scheduling, true));
+        phases.add(new Phase("threads not building a project", Math.max(0, session * timeline.getDegreeOfConcurrency() - building), true));
+    }
+
+    /**
+     * Phase of the build.
+     */
+    static final class Phase {
+        private final String name;
+        private final long duration;
+        private final boolean threadTime;
+
+        Phase(final String name, final long duration, final boolean threadTime) {
+            this.name = name;
+            this.duration = duration;
+            this.threadTime = threadTime;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return duration in nanoseconds
+         */
+        long getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return true, if the phase is part of the session and measured in thread time
+         */
+        boolean isThreadTime() {
+            return threadTime;
+        }
+    }
+}
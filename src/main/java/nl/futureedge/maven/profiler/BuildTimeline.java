@@ -0,0 +1,156 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Start and end times of the projects in the reactor, and of the mojos executed for those projects.
+ */
+final class BuildTimeline {
+
+    private final ConcurrentMap<String, Project> projects = new ConcurrentHashMap<>();
+    private volatile int degreeOfConcurrency = 1;
+
+    /**
+     * Record the start of a project.
+     * @param project project
+     * @param upstreamProjects projects in the reactor the project directly depends on
+     * @param threads number of threads used to build the reactor
+     * @param time start time
+     */
+    void projectStarted(final String project, final List<String> upstreamProjects, final int threads, final long time) {
+        degreeOfConcurrency = Math.max(1, threads);
+        projects.put(project, new Project(project, upstreamProjects, time));
+    }
+
+    /**
+     * Record the end of a project.
+     * @param project project
+     * @param time end time
+     * @return the project, or null if the start of the project was not recorded
+     */
+    Project projectFinished(final String project, final long time) {
+        final Project result = projects.get(project);
+        if (result != null) {
+            result.end = time;
+            result.finished = true;
+        }
+        return result;
+    }
+
+    /**
+     * Record a mojo execution.
+     * @param project project
+     * @param mojo mojo identifier
+     * @param start start time
+     * @param end end time
+     */
+    void mojoFinished(final String project, final String mojo, final long start, final long end) {
+        final Project result = projects.get(project);
+        if (result != null) {
+            result.mojos.add(new Mojo(mojo, start, end));
+        }
+    }
+
+    /**
+     * @return number of threads used to build the reactor
+     */
+    int getDegreeOfConcurrency() {
+        return degreeOfConcurrency;
+    }
+
+    /**
+     * @return finished projects
+     */
+    List<Project> getFinishedProjects() {
+        final List<Project> result = new ArrayList<>();
+        for (final Project project : projects.values()) {
+            if (project.isFinished()) {
+                result.add(project);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Project in the reactor.
+     */
+    static final class Project {
+        private final String name;
+        private final List<String> upstreamProjects;
+        private final long start;
+        private volatile long end;
+        private volatile boolean finished;
+        private final List<Mojo> mojos = Collections.synchronizedList(new ArrayList<>());
+
+        Project(final String name, final List<String> upstreamProjects, final long start) {
+            this.name = name;
+            this.upstreamProjects = upstreamProjects;
+            this.start = start;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<String> getUpstreamProjects() {
+            return upstreamProjects;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        long getDuration() {
+            return end - start;
+        }
+
+        List<Mojo> getMojos() {
+            synchronized (mojos) {
+                return new ArrayList<>(mojos);
+            }
+        }
+    }
+
+    /**
+     * Mojo execution within a project.
+     */
+    static final class Mojo {
+        private final String name;
+        private final long start;
+        private final long end;
+
+        Mojo(final String name, final long start, final long end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        long getDuration() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a timeline of the build in the Chrome Trace Event Format (JSON array format), to be viewed with
+ * {@code chrome://tracing} or Perfetto.
+ *
+ * <p>
+ * Events are appended to the file as they complete; nothing is retained in memory. Every event is flushed to the file
+ * when it is written (by the thread processing the events, not by the build threads), so the file always ends with a
+ * complete event. The JSON array format allows the closing bracket to be missing, so the file is usable even if the build
+ * is aborted.
+ * </p>
+ */
+final class ChromeTraceWriter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChromeTraceWriter.class.getName());
+
+    /**
+     * Trace event timestamps and durations are in microseconds.
+     */
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final File file;
+    private final long origin;
+    private final Set<Long> threads = ConcurrentHashMap.newKeySet();
+    private Writer writer;
+    private boolean first = true;
+
+    /**
+     * Create the trace file.
+     * @param file trace file
+     * @param origin time (in nanoseconds, see {@link System#nanoTime()}) used as start of the timeline
+     * @throws IOException if the file could not be created
+     */
+    ChromeTraceWriter(final File file, final long origin) throws IOException {
+        this.file = file;
+        this.origin = origin;
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8));
+        writer.write("[");
+        write(String.format(Locale.ROOT, "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":%s}}",
+                Json.quote("maven")));
+    }
+
+    /**
+     * Append a complete event.
+     * @param name name
+     * @param category category
+     * @param thread thread that executed the event
+     * @param start start time in nanoseconds
+     * @param end end time in nanoseconds
+     * @param project project the event belongs to (can be null)
+     * @param detail details of the event (can be null)
+     */
+    void complete(final String name, final Event.Category category, final Thread thread, final long start, final long end,
+                  final String project, final String detail) {
+        if (threads.add(thread.getId())) {
+            write(String.format(Locale.ROOT, "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":%s}}",
+                    thread.getId(), Json.quote(thread.getName())));
+        }
+        write(String.format(Locale.ROOT, "{\"name\":%s,\"cat\":%s,\"ph\":\"X\",\"ts\":%d,\"dur\":%d,\"pid\":1,\"tid\":%d,"
+                        + "\"args\":{\"project\":%s,\"detail\":%s}}",
+                Json.quote(name), Json.quote(category.name().toLowerCase(Locale.ROOT)), (start - origin) / NANOS_PER_MICRO,
+                (end - start) / NANOS_PER_MICRO, thread.getId(), Json.quote(project), Json.quote(detail)));
+    }
+
+    private synchronized void write(final String event) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            // The separator precedes the event, so the flushed file always ends with a complete event
+            writer.write(first ? "\n" : ",\n");
+            writer.write(event);
+            writer.flush();
+            first = false;
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write trace file " + file + "; tracing disabled", e);
+            closeQuietly();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write("\n]\n");
+        } finally {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            writer.close();
+        } catch (final IOException e) {
+            LOGGER.debug("Could not close trace file", e);
+        } finally {
+            writer = null;
+        }
+    }
+}
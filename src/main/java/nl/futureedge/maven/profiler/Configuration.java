@@ -0,0 +1,388 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Configuration of the profiler; read from the system and user properties of the build (all properties are prefixed
+ * with {@code mojo-timer.}).
+ */
+final class Configuration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Configuration.class.getName());
+
+    private static final String PREFIX = "mojo-timer.";
+
+    private final Properties properties;
+
+    Configuration(final Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Create the configuration from the event spy context data (user properties override system properties).
+     * @param data event spy context data
+     * @return configuration
+     */
+    static Configuration fromContextData(final Map<String, Object> data) {
+        final Properties properties = new Properties();
+        properties.putAll(System.getProperties());
+        putAll(properties, data.get("systemProperties"));
+        putAll(properties, data.get("userProperties"));
+        return new Configuration(properties);
+    }
+
+    private static void putAll(final Properties properties, final Object values) {
+        if (values instanceof Map) {
+            properties.putAll((Map<?, ?>) values);
+        }
+    }
+
+    /**
+     * @return number of modules to display in the module report
+     */
+    int getTopModules() {
+        return getInt("top-modules", 10);
+    }
+
+    /**
+     * @return number of mojos to display per module in the module report
+     */
+    int getTopMojos() {
+        return getInt("top-mojos", 5);
+    }
+
+    /**
+     * @return number of slowest artifact transfers to report
+     */
+    int getTopArtifacts() {
+        return getInt("top-artifacts", 10);
+    }
+
+    /**
+     * @return base directory of the build (the multi module project directory)
+     */
+    File getBaseDirectory() {
+        return new File(properties.getProperty("maven.multiModuleProjectDirectory", properties.getProperty("user.dir", ".")));
+    }
+
+    /**
+     * @return directory to write output files to
+     */
+    File getOutputDirectory() {
+        return getFile("directory", new File(getBaseDirectory(), "target"));
+    }
+
+    /**
+     * @return true, if a timeline of the build should be written in the Chrome Trace Event Format
+     */
+    boolean isTrace() {
+        return getBoolean("trace", false);
+    }
+
+    /**
+     * @return file to write the timeline of the build to
+     */
+    File getTraceFile() {
+        return getFile("trace.file", new File(getOutputDirectory(), "mojo-timer-trace.json"));
+    }
+
+    /**
+     * @return names of the reports to write (see {@link Reporter#getName()}; {@code log} is the report in the build log)
+     */
+    List<String> getReports() {
+        final List<String> result = new ArrayList<>();
+        for (final String name : getList("report", "log")) {
+            result.add(name.toLowerCase(Locale.ROOT));
+        }
+        return result;
+    }
+
+    /**
+     * @return patterns of the identifiers to record ({@code *} matches any characters; all identifiers, if empty)
+     */
+    List<String> getIncludes() {
+        return getList("include", "");
+    }
+
+    /**
+     * @return patterns of the identifiers not to record ({@code *} matches any characters)
+     */
+    List<String> getExcludes() {
+        return getList("exclude", "");
+    }
+
+    /**
+     * @return categories of events to record
+     */
+    Set<Event.Category> getCategories() {
+        final Set<Event.Category> result = EnumSet.noneOf(Event.Category.class);
+        final List<String> names = getList("categories", "");
+        if (names.isEmpty()) {
+            return EnumSet.allOf(Event.Category.class);
+        }
+        for (final String name : names) {
+            try {
+                result.add(Event.Category.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_')));
+            } catch (final IllegalArgumentException e) {
+                LOGGER.warn("Invalid category '{}' for property {}categories; valid categories: {}", name, PREFIX,
+                        Arrays.stream(Event.Category.values()).map(category -> category.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+                                .collect(Collectors.joining(", ")));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return percentage (0 - 100) of the repository events (artifact resolutions and transfers) to record
+     */
+    int getRepositorySampling() {
+        return Math.max(0, Math.min(100, getInt("repository.sampling", 100)));
+    }
+
+    /**
+     * @return true, if the aggregates of the build should be stored and compared with previous builds
+     */
+    boolean isHistory() {
+        return getBoolean("history", false);
+    }
+
+    /**
+     * @return directory of the build history store
+     */
+    File getHistoryDirectory() {
+        return getFile("history.directory", new File(getBaseDirectory(), ".mvn/mojo-timer/history"));
+    }
+
+    /**
+     * @return number of previous builds the current build is compared with
+     */
+    int getHistoryBaseline() {
+        return getInt("history.baseline", 10);
+    }
+
+    /**
+     * @return percentage a mojo or module must be slower than the baseline to be reported as regression
+     */
+    int getHistoryThreshold() {
+        return getInt("history.threshold", 20);
+    }
+
+    /**
+     * @return minimum increase (in milliseconds) for a mojo or module to be reported as regression
+     */
+    int getHistoryMinimumIncrease() {
+        return getInt("history.minimum-increase", 100);
+    }
+
+    /**
+     * @return true, if running mojos should be watched (snapshots and thread dumps of hanging mojos)
+     */
+    boolean isWatchdog() {
+        return getBoolean("watchdog", false);
+    }
+
+    /**
+     * @return interval (in seconds) between snapshots of the running mojos
+     */
+    int getWatchdogInterval() {
+        return Math.max(1, getInt("watchdog.interval", 60));
+    }
+
+    /**
+     * @return budget (in seconds) of mojos without history
+     */
+    int getWatchdogBudget() {
+        return getInt("watchdog.budget", 300);
+    }
+
+    /**
+     * @return multiple of the budget (or the median duration in previous builds) after which a mojo is considered hanging
+     */
+    double getWatchdogMultiple() {
+        return getDouble("watchdog.multiple", 3);
+    }
+
+    /**
+     * @return minimum duration (in seconds) before a mojo is considered hanging
+     */
+    int getWatchdogMinimum() {
+        return Math.max(0, getInt("watchdog.minimum", 60));
+    }
+
+    /**
+     * @return file to write the snapshots of the running mojos to
+     */
+    File getWatchdogFile() {
+        return getFile("watchdog.file", new File(getOutputDirectory(), "mojo-timer-status.txt"));
+    }
+
+    /**
+     * @return true, if the stacks of the threads executing mojos should be sampled
+     */
+    boolean isSampler() {
+        return getBoolean("sampler", false);
+    }
+
+    /**
+     * @return interval (in milliseconds) between stack samples
+     */
+    int getSamplerInterval() {
+        return Math.max(1, getInt("sampler.interval", 20));
+    }
+
+    /**
+     * @return maximum number of frames per sampled stack
+     */
+    int getSamplerDepth() {
+        return Math.max(1, getInt("sampler.depth", 128));
+    }
+
+    /**
+     * @return directory to write the collapsed stack files to
+     */
+    File getSamplerDirectory() {
+        return getFile("sampler.directory", new File(getOutputDirectory(), "mojo-timer-stacks"));
+    }
+
+    /**
+     * @return true, if a data file (to merge with the data files of other builds) should be written
+     */
+    boolean isData() {
+        return getBoolean("data", false);
+    }
+
+    /**
+     * @return data file
+     */
+    File getDataFile() {
+        return getFile("data.file", new File(getOutputDirectory(), "mojo-timer.dat"));
+    }
+
+    /**
+     * @return name of the node running the build (defaults to the host name)
+     */
+    String getNode() {
+        final String value = properties.getProperty(PREFIX + "node");
+        if (value != null && !value.trim().isEmpty()) {
+            return value.trim();
+        }
+        // Environment first; resolving the local host can be slow
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isEmpty()) {
+            host = System.getenv("COMPUTERNAME");
+        }
+        if (host == null || host.isEmpty()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (final IOException e) {
+                host = "";
+            }
+        }
+        return host;
+    }
+
+    /**
+     * @return true, if the metrics of the build should be written to a file in the OpenMetrics text format
+     */
+    boolean isMetrics() {
+        return getBoolean("metrics", false);
+    }
+
+    /**
+     * @return file to write the metrics to (for example in the directory of a textfile collector)
+     */
+    File getMetricsFile() {
+        return getFile("metrics.file", new File(getOutputDirectory(), "mojo-timer.prom"));
+    }
+
+    /**
+     * @return port to serve the metrics on during the build (0 for any free port), or -1 to not serve the metrics
+     */
+    int getMetricsPort() {
+        return getInt("metrics.port", -1);
+    }
+
+    /**
+     * @return host name or address to serve the metrics on, or null for the loopback address
+     */
+    String getMetricsHost() {
+        final String value = properties.getProperty(PREFIX + "metrics.host");
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    /**
+     * @return smallest unit used to report durations
+     */
+    Durations.Resolution getResolution() {
+        final String value = properties.getProperty(PREFIX + "resolution");
+        if (value == null || value.trim().isEmpty()) {
+            return Durations.Resolution.MICROSECONDS;
+        }
+        final Durations.Resolution result = Durations.Resolution.parse(value);
+        if (result == null) {
+            LOGGER.warn("Invalid value '{}' for property {}resolution; using default us", value, PREFIX);
+            return Durations.Resolution.MICROSECONDS;
+        }
+        return result;
+    }
+
+    private List<String> getList(final String name, final String defaultValue) {
+        final List<String> result = new ArrayList<>();
+        for (final String value : properties.getProperty(PREFIX + name, defaultValue).split(",")) {
+            if (!value.trim().isEmpty()) {
+                result.add(value.trim());
+            }
+        }
+        return result;
+    }
+
+    private File getFile(final String name, final File defaultValue) {
+        final String value = properties.getProperty(PREFIX + name);
+        return value == null || value.trim().isEmpty() ? defaultValue : new File(value.trim());
+    }
+
+    private boolean getBoolean(final String name, final boolean defaultValue) {
+        final String value = properties.getProperty(PREFIX + name);
+        // Maven sets a property given without value (-Dproperty) to "true"
+        return value == null || value.trim().isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private int getInt(final String name, final int defaultValue) {
+        final String value = properties.getProperty(PREFIX + name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (final NumberFormatException e) {
+            LOGGER.warn("Invalid value '{}' for property {}{}; using default {}", value, PREFIX, name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private double getDouble(final String name, final double defaultValue) {
+        final String value = properties.getProperty(PREFIX + name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (final NumberFormatException e) {
+            LOGGER.warn("Invalid value '{}' for property {}{}; using default {}", value, PREFIX, name, defaultValue);
+            return defaultValue;
+        }
+    }
+}
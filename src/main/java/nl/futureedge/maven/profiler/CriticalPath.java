@@ -0,0 +1,191 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Critical path through the reactor; the chain of projects that determined the wall clock time of the build.
+ *
+ * <p>
+ * The path is determined backwards from the project that finished last; each step goes to the upstream project that
+ * finished last (the project that was waited upon). The slack of a project is the time it could have taken longer
+ * without delaying any of its downstream projects (or the end of the build).
+ * </p>
+ */
+final class CriticalPath {
+
+    private final long wallClock;
+    private final long busy;
+    private final int degreeOfConcurrency;
+    private final List<Step> steps;
+    private final List<Slack> slacks;
+
+    private CriticalPath(final long wallClock, final long busy, final int degreeOfConcurrency, final List<Step> steps,
+                         final List<Slack> slacks) {
+        this.wallClock = wallClock;
+        this.busy = busy;
+        this.degreeOfConcurrency = degreeOfConcurrency;
+        this.steps = steps;
+        this.slacks = slacks;
+    }
+
+    /**
+     * Determine the critical path.
+     * @param timeline build timeline
+     * @return critical path, or null if no projects were finished
+     */
+    static CriticalPath determine(final BuildTimeline timeline) {
+        final List<BuildTimeline.Project> projects = timeline.getFinishedProjects();
+        if (projects.isEmpty()) {
+            return null;
+        }
+
+        final Map<String, BuildTimeline.Project> projectsByName = new HashMap<>();
+        long buildStart = Long.MAX_VALUE;
+        long buildEnd = Long.MIN_VALUE;
+        long busy = 0;
+        BuildTimeline.Project last = null;
+        for (final BuildTimeline.Project project : projects) {
+            projectsByName.put(project.getName(), project);
+            buildStart = Math.min(buildStart, project.getStart());
+            buildEnd = Math.max(buildEnd, project.getEnd());
+            busy += project.getDuration();
+            if (last == null || project.getEnd() > last.getEnd()) {
+                last = project;
+            }
+        }
+
+        // Walk back from the project that finished last
+        final LinkedList<Step> steps = new LinkedList<>();
+        BuildTimeline.Project current = last;
+        while (current != null) {
+            final BuildTimeline.Project blocker = determineBlocker(projectsByName, current);
+            final long readyAt = blocker == null ? buildStart : blocker.getEnd();
+            steps.addFirst(new Step(current, Math.max(0, current.getStart() - readyAt)));
+            current = blocker;
+        }
+
+        // Latest finish of each project without delaying a downstream project
+        final Map<String, Long> latestFinish = new HashMap<>();
+        for (final BuildTimeline.Project project : projects) {
+            for (final String upstreamProject : project.getUpstreamProjects()) {
+                latestFinish.merge(upstreamProject, project.getStart(), Math::min);
+            }
+        }
+        final List<Slack> slacks = new ArrayList<>();
+        for (final BuildTimeline.Project project : projects) {
+            final long slack = latestFinish.getOrDefault(project.getName(), buildEnd) - project.getEnd();
+            slacks.add(new Slack(project.getName(), Math.max(0, slack)));
+        }
+        slacks.sort(Comparator.comparingLong(Slack::getSlack).thenComparing(Slack::getProject));
+
+        return new CriticalPath(buildEnd - buildStart, busy, timeline.getDegreeOfConcurrency(), new ArrayList<>(steps), slacks);
+    }
+
+    private static BuildTimeline.Project determineBlocker(final Map<String, BuildTimeline.Project> projects,
+                                                         final BuildTimeline.Project project) {
+        BuildTimeline.Project result = null;
+        for (final String upstreamProject : project.getUpstreamProjects()) {
+            final BuildTimeline.Project candidate = projects.get(upstreamProject);
+            if (candidate != null && candidate.getEnd() <= project.getStart() && (result == null || candidate.getEnd() > result.getEnd())) {
+                result = candidate;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return wall clock time from the start of the first project until the end of the last project
+     */
+    long getWallClock() {
+        return wallClock;
+    }
+
+    /**
+     * @return cumulative time spent building projects (over all threads)
+     */
+    long getBusy() {
+        return busy;
+    }
+
+    int getDegreeOfConcurrency() {
+        return degreeOfConcurrency;
+    }
+
+    /**
+     * @return average number of threads building a project
+     */
+    double getAverageThreadsBusy() {
+        return wallClock == 0 ? 0 : (double) busy / wallClock;
+    }
+
+    /**
+     * @return average thread utilisation (0-1) of the threads available for building projects
+     */
+    double getThreadUtilisation() {
+        return getAverageThreadsBusy() / degreeOfConcurrency;
+    }
+
+    /**
+     * @return steps on the critical path, in build order
+     */
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return slack per project, smallest slack first
+     */
+    List<Slack> getSlacks() {
+        return slacks;
+    }
+
+    /**
+     * Project on the critical path.
+     */
+    static final class Step {
+        private final BuildTimeline.Project project;
+        private final long waited;
+
+        Step(final BuildTimeline.Project project, final long waited) {
+            this.project = project;
+            this.waited = waited;
+        }
+
+        BuildTimeline.Project getProject() {
+            return project;
+        }
+
+        /**
+         * @return time between the moment the project could have started (all upstream projects finished) and its actual start
+         */
+        long getWaited() {
+            return waited;
+        }
+    }
+
+    /**
+     * Slack of a project.
+     */
+    static final class Slack {
+        private final String project;
+        private final long slack;
+
+        Slack(final String project, final long slack) {
+            this.project = project;
+            this.slack = slack;
+        }
+
+        String getProject() {
+            return project;
+        }
+
+        long getSlack() {
+            return slack;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Writes the report as CSV ({@code mojo-timer.csv}); one line per execution identifier and one line per mojo per module.
+ */
+public final class CsvReporter implements Reporter {
+
+    private static final String HEADER = "kind,module,name,count,total,min,max,average,p50,p90,p99";
+
+    @Override
+    public String getName() {
+        return "csv";
+    }
+
+    @Override
+    public File report(final Report report, final File outputDirectory) throws IOException {
+        final File file = new File(outputDirectory, "mojo-timer.csv");
+        Files.createDirectories(outputDirectory.toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (final Report.Execution execution : report.getExecutions()) {
+                writer.write(String.format(Locale.ROOT, "execution,,%1$s,%2$d,%3$d,%4$d,%5$d,%6$d,%7$d,%8$d,%9$d\n",
+                        escape(execution.getName()), execution.getCount(), execution.getTotal(), execution.getMin(), execution.getMax(),
+                        execution.getAverage(), execution.getP50(), execution.getP90(), execution.getP99()));
+            }
+            for (final Report.Module module : report.getModules()) {
+                for (final Report.Totals mojo : module.getMojos()) {
+                    writer.write(String.format(Locale.ROOT, "module,%1$s,%2$s,%3$d,%4$d,,,,,,\n",
+                            escape(module.getName()), escape(mojo.getName()), mojo.getCount(), mojo.getTotal()));
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Quote a value if it contains a separator, quote or line break (RFC 4180).
+     * @param value value
+     * @return value to write
+     */
+    static String escape(final String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
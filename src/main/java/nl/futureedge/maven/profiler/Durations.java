@@ -0,0 +1,95 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duration formatting.
+ */
+final class Durations {
+
+    /**
+     * Smallest unit used to format durations.
+     */
+    enum Resolution {
+        /**
+         * Durations under a millisecond in microseconds, durations under a second in milliseconds.
+         */
+        MICROSECONDS,
+        /**
+         * Durations under a second in milliseconds.
+         */
+        MILLISECONDS,
+        /**
+         * Durations under 100 seconds in seconds (with millisecond precision).
+         */
+        SECONDS;
+
+        /**
+         * Parse a resolution.
+         * @param value value ({@code us}, {@code ms} or {@code s})
+         * @return resolution, or null if the value is not a valid resolution
+         */
+        static Resolution parse(final String value) {
+            switch (value.trim()) {
+                case "us":
+                case "µs":
+                    return MICROSECONDS;
+                case "ms":
+                    return MILLISECONDS;
+                case "s":
+                case "sec":
+                    return SECONDS;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final long NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private Durations() {
+        throw new IllegalStateException("Do not instantiate");
+    }
+
+    /**
+     * Format a duration to a fixed length.
+     * <ul>
+     * <li>XXX.XXX &micro;s (for under 1 millisecond; only for resolution microseconds)</li>
+     * <li>XXX.XXX ms (for under 1 second; only for resolution microseconds and milliseconds)</li>
+     * <li>XX.XXX sec (for under 100 seconds)</li>
+     * <li> XX:XX min (for under 100 minutes)</li>
+     * <li>XXX:XX hrs (for the rest)</li>
+     * </ul>
+     * @param durationInNanos duration in nanoseconds
+     * @param resolution smallest unit to use
+     * @return formatted duration
+     */
+    static String format(final long durationInNanos, final Resolution resolution) {
+        if (durationInNanos < NANOS_PER_MILLI && resolution == Resolution.MICROSECONDS) {
+            return String.format("%1$3d.%2$03d µs", durationInNanos / NANOS_PER_MICRO, durationInNanos % NANOS_PER_MICRO);
+        }
+        final long durationInMicros = durationInNanos / NANOS_PER_MICRO;
+        if (durationInMicros < 1000 * 1000 && resolution != Resolution.SECONDS) {
+            return String.format("%1$3d.%2$03d ms", durationInMicros / 1000, durationInMicros % 1000);
+        }
+
+        final long durationInMillis = durationInNanos / NANOS_PER_MILLI;
+        final long durationInSeconds = durationInMillis / 1000;
+        if (durationInSeconds < 100) {
+            // Under 100 seconds
+            final long millis = durationInMillis % 1000;
+            return String.format("%1$2d.%2$03d sec", durationInSeconds, millis);
+        } else {
+            final long durationInMinutes = durationInSeconds / 60;
+            if (durationInMinutes < 100) {
+                final long seconds = durationInSeconds % 60;
+                return String.format("%1$3d:%2$02d min", durationInMinutes, seconds);
+            } else {
+                final long durationInHours = durationInMinutes / 60;
+                final long minutes = durationInMinutes % 60;
+                return String.format("%1$3d:%2$02d hrs", durationInHours, minutes);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Start or end of a timed part of the build.
+ */
+final class Event {
+
+    /**
+     * Part of the build the event belongs to.
+     */
+    enum Category {
+        MAVEN,
+        DEPENDENCY_RESOLUTION,
+        REPOSITORY,
+        PROJECT,
+        MOJO
+    }
+
+    static final String EXECUTION = "maven:execution";
+    static final String PROJECT_DISCOVERY = "maven:project-discovery";
+    static final String SESSION = "maven:session";
+    static final String PROJECT = "maven:project";
+    static final String FORK = "maven:fork";
+    static final String FORKED_PROJECT = "maven:forked-project";
+    static final String ARTIFACT_DOWNLOAD = "maven:repository:artifact-download";
+    static final String ARTIFACT_DEPLOYMENT = "maven:repository:artifact-deployment";
+    static final String ARTIFACT_RESOLUTION = "maven:repository:artifact-resolution";
+    static final String METADATA_DOWNLOAD = "maven:repository:metadata-download";
+    static final String METADATA_RESOLUTION = "maven:repository:metadata-resolution";
+
+    private final Category category;
+    private final String identifier;
+    private final boolean start;
+    private final String project;
+    private final List<String> upstreamProjects;
+    private final int degreeOfConcurrency;
+    private final String correlationKey;
+    private final boolean threadBound;
+    private final RepositoryResource resource;
+    private final boolean failed;
+
+    Event(final Category category, final String identifier, final boolean start) {
+        this(category, identifier, start, null);
+    }
+
+    Event(final Category category, final String identifier, final boolean start, final String project) {
+        this(category, identifier, start, project, false);
+    }
+
+    Event(final Category category, final String identifier, final boolean start, final String project, final boolean failed) {
+        this(category, identifier, start, project, Collections.emptyList(), 1, null, true, null, failed);
+    }
+
+    Event(final Category category, final String identifier, final boolean start, final String project,
+          final List<String> upstreamProjects, final int degreeOfConcurrency) {
+        this(category, identifier, start, project, upstreamProjects, degreeOfConcurrency, null, true, null, false);
+    }
+
+    Event(final Category category, final String identifier, final boolean start, final String correlationKey, final boolean threadBound,
+          final RepositoryResource resource) {
+        this(category, identifier, start, null, Collections.emptyList(), 1, correlationKey, threadBound, resource, false);
+    }
+
+    private Event(final Category category, final String identifier, final boolean start, final String project,
+                  final List<String> upstreamProjects, final int degreeOfConcurrency, final String correlationKey,
+                  final boolean threadBound, final RepositoryResource resource, final boolean failed) {
+        this.category = category;
+        this.identifier = identifier;
+        this.start = start;
+        this.project = project;
+        this.upstreamProjects = upstreamProjects;
+        this.degreeOfConcurrency = degreeOfConcurrency;
+        this.correlationKey = correlationKey;
+        this.threadBound = threadBound;
+        this.resource = resource;
+        this.failed = failed;
+    }
+
+    Category getCategory() {
+        return category;
+    }
+
+    /**
+     * @return identifier under which the duration is recorded, or null if the event has no duration to record
+     */
+    String getIdentifier() {
+        return identifier;
+    }
+
+    boolean isStart() {
+        return start;
+    }
+
+    /**
+     * @return project (groupId:artifactId) the event belongs to, or null if the event is not project specific
+     */
+    String getProject() {
+        return project;
+    }
+
+    /**
+     * @return projects (groupId:artifactId) in the reactor the project directly depends on (only for project start events)
+     */
+    List<String> getUpstreamProjects() {
+        return upstreamProjects;
+    }
+
+    /**
+     * @return number of threads used to build the reactor (only for project start events)
+     */
+    int getDegreeOfConcurrency() {
+        return degreeOfConcurrency;
+    }
+
+    /**
+     * @return key to correlate the start and end event, or null if the start and end event are correlated by identifier
+     */
+    String getCorrelationKey() {
+        return correlationKey;
+    }
+
+    /**
+     * @return true, if the start and end event occur on the same thread (and should be correlated per thread)
+     */
+    boolean isThreadBound() {
+        return threadBound;
+    }
+
+    /**
+     * @return resource and repository (only for repository events; notifications without duration have no identifier)
+     */
+    RepositoryResource getResource() {
+        return resource;
+    }
+
+    /**
+     * @return true, if the part of the build failed (only for end events of mojos, projects and forks)
+     */
+    boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,571 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Determines the event for an event object received from maven.
+ *
+ * <p>
+ * The class hierarchy of an event object is only inspected once per event class. The result (including the method
+ * handles needed to read the event) is cached and reused for every following event of that class.
+ * </p>
+ * <p>
+ * Determining an event is split in two steps. Capturing it (on the thread that emitted it) only reads what can change
+ * after the event, such as the current project of the session; completing it (on the thread processing the events)
+ * builds the identifiers, reads the size of transferred files and walks the project dependency graph.
+ * </p>
+ */
+final class EventDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventDispatcher.class.getName());
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final Event IGNORED = new Event(Event.Category.MAVEN, null, true);
+    private static final CapturedEvent IGNORED_CAPTURE = new CapturedEvent(IGNORED.getCategory(), captured -> IGNORED, null, null, null);
+    private static final Resolver UNSUPPORTED = event -> null;
+
+    private final ClassValue<Resolver> resolvers = new ClassValue<Resolver>() {
+        @Override
+        protected Resolver computeValue(final Class<?> type) {
+            return createResolver(type);
+        }
+    };
+
+    /**
+     * Determine the event (capture and complete it on the calling thread).
+     * @param event event object received from maven
+     * @return event, or null if the event object is not supported
+     */
+    Event determineEvent(final Object event) {
+        final CapturedEvent captured = capture(event);
+        return captured == null ? null : complete(captured);
+    }
+
+    /**
+     * Capture the event; must be called on the thread that emitted the event, when it is emitted.
+     * @param event event object received from maven
+     * @return captured event, or null if the event object is not supported
+     */
+    CapturedEvent capture(final Object event) {
+        try {
+            return resolvers.get(event.getClass()).capture(event);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Could not determine event", e);
+            return null;
+        }
+    }
+
+    /**
+     * Complete a captured event; can be called on any thread.
+     * @param captured captured event
+     * @return event, or null if the event could not be determined
+     */
+    Event complete(final CapturedEvent captured) {
+        try {
+            return captured.completer.complete(captured);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Could not determine event", e);
+            return null;
+        }
+    }
+
+    private static Resolver createResolver(final Class<?> clazz) {
+        final Map<String, Class<?>> classesAndInterfaces = determineClassesAndInterfaces(clazz);
+
+        try {
+            final Resolver result;
+            if (classesAndInterfaces.containsKey("org.eclipse.aether.RepositoryEvent")) {
+                result = new RepositoryEventResolver(classesAndInterfaces.get("org.eclipse.aether.RepositoryEvent"));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.execution.ExecutionEvent")) {
+                result = new ExecutionEventResolver(classesAndInterfaces.get("org.apache.maven.execution.ExecutionEvent"));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.settings.building.SettingsBuildingRequest")) {
+                result = constant(new Event(Event.Category.MAVEN, "maven:settings-building", true));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.settings.building.SettingsBuildingResult")) {
+                result = constant(new Event(Event.Category.MAVEN, "maven:settings-building", false));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.toolchain.building.ToolchainsBuildingRequest")) {
+                result = constant(new Event(Event.Category.MAVEN, "maven:toolchains-building", true));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.toolchain.building.ToolchainsBuildingResult")) {
+                result = constant(new Event(Event.Category.MAVEN, "maven:toolchains-building", false));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.project.DependencyResolutionRequest")) {
+                result = constant(new Event(Event.Category.DEPENDENCY_RESOLUTION, "maven:dependency-resolution", true));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.project.DependencyResolutionResult")) {
+                result = constant(new Event(Event.Category.DEPENDENCY_RESOLUTION, "maven:dependency-resolution", false));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.execution.MavenExecutionRequest")) {
+                result = constant(new Event(Event.Category.MAVEN, Event.EXECUTION, true));
+            } else if (classesAndInterfaces.containsKey("org.apache.maven.execution.MavenExecutionResult")) {
+                result = constant(new Event(Event.Category.MAVEN, Event.EXECUTION, false));
+            } else {
+                result = UNSUPPORTED;
+            }
+            return result;
+        } catch (final ReflectiveOperationException e) {
+            LOGGER.warn("Could not determine event type for " + clazz.getName(), e);
+            return UNSUPPORTED;
+        }
+    }
+
+    private static Map<String, Class<?>> determineClassesAndInterfaces(final Class<?> clazz) {
+        final Map<String, Class<?>> result = new HashMap<>();
+        Class<?> theClass = clazz;
+        while (theClass != null) {
+            for (final Class<?> theInterface : theClass.getInterfaces()) {
+                result.put(theInterface.getName(), theInterface);
+            }
+            result.put(theClass.getName(), theClass);
+            theClass = theClass.getSuperclass();
+        }
+        return result;
+    }
+
+    private static Resolver constant(final Event event) {
+        final CapturedEvent captured = new CapturedEvent(event.getCategory(), ignored -> event, null, null, null);
+        return ignored -> captured;
+    }
+
+    private static Object[] enumConstants(final Method method) throws NoSuchMethodException {
+        final Object[] result = method.getReturnType().getEnumConstants();
+        if (result == null) {
+            throw new NoSuchMethodException("Method " + method + " does not return an enum");
+        }
+        return result;
+    }
+
+    private static MethodHandle getter(final Method method) throws IllegalAccessException {
+        return MethodHandles.publicLookup().unreflect(method).asType(GETTER);
+    }
+
+    private static MethodHandle handle(final Method method, final MethodType methodType) throws IllegalAccessException {
+        return MethodHandles.publicLookup().unreflect(method).asType(methodType);
+    }
+
+    private static Object invoke(final MethodHandle getter, final Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    /**
+     * Resolves repository events; artifact transfers, artifact resolution and metadata resolution are supported.
+     *
+     * <p>
+     * Transfers are correlated on resource and repository, as transfers can be executed in parallel and finish on
+     * another thread. Resolution is correlated on resource (and repository for metadata) on the resolving thread.
+     * </p>
+     */
+    private static final class RepositoryEventResolver implements Resolver, Completer {
+
+        private final MethodHandle type;
+        private final Map<Object, RepositoryEventType> types = new IdentityHashMap<>();
+
+        private final MethodHandle artifact;
+        private final MethodHandle artifactGroupId;
+        private final MethodHandle artifactArtifactId;
+        private final MethodHandle artifactExtension;
+        private final MethodHandle artifactClassifier;
+        private final MethodHandle artifactBaseVersion;
+        private final MethodHandle metadata;
+        private final MethodHandle metadataGroupId;
+        private final MethodHandle metadataArtifactId;
+        private final MethodHandle metadataVersion;
+        private final MethodHandle metadataType;
+        private final MethodHandle repository;
+        private final MethodHandle repositoryId;
+        private final MethodHandle file;
+        private final MethodHandle exception;
+
+        RepositoryEventResolver(final Class<?> repositoryEventClass) throws ReflectiveOperationException {
+            final Method getType = repositoryEventClass.getMethod("getType");
+            type = getter(getType);
+            for (final Object eventType : enumConstants(getType)) {
+                switch (eventType.toString()) {
+                    case "ARTIFACT_DOWNLOADING":
+                        register(eventType, Event.ARTIFACT_DOWNLOAD, true, false, false);
+                        break;
+                    case "ARTIFACT_DOWNLOADED":
+                        register(eventType, Event.ARTIFACT_DOWNLOAD, false, false, false);
+                        break;
+                    case "ARTIFACT_DEPLOYING":
+                        register(eventType, Event.ARTIFACT_DEPLOYMENT, true, false, false);
+                        break;
+                    case "ARTIFACT_DEPLOYED":
+                        register(eventType, Event.ARTIFACT_DEPLOYMENT, false, false, false);
+                        break;
+                    case "ARTIFACT_RESOLVING":
+                        register(eventType, Event.ARTIFACT_RESOLUTION, true, false, true);
+                        break;
+                    case "ARTIFACT_RESOLVED":
+                        register(eventType, Event.ARTIFACT_RESOLUTION, false, false, true);
+                        break;
+                    case "METADATA_DOWNLOADING":
+                        register(eventType, Event.METADATA_DOWNLOAD, true, true, false);
+                        break;
+                    case "METADATA_DOWNLOADED":
+                        register(eventType, Event.METADATA_DOWNLOAD, false, true, false);
+                        break;
+                    case "METADATA_RESOLVING":
+                        register(eventType, Event.METADATA_RESOLUTION, true, true, true);
+                        break;
+                    case "METADATA_RESOLVED":
+                        register(eventType, Event.METADATA_RESOLUTION, false, true, true);
+                        break;
+                    case "METADATA_INVALID":
+                        // Notification without duration
+                        register(eventType, null, false, true, false);
+                        break;
+                    default:
+                        // Not supported
+                }
+            }
+
+            final Method getArtifact = repositoryEventClass.getMethod("getArtifact");
+            artifact = getter(getArtifact);
+            final Class<?> artifactClass = getArtifact.getReturnType();
+            artifactGroupId = getter(artifactClass.getMethod("getGroupId"));
+            artifactArtifactId = getter(artifactClass.getMethod("getArtifactId"));
+            artifactExtension = getter(artifactClass.getMethod("getExtension"));
+            artifactClassifier = getter(artifactClass.getMethod("getClassifier"));
+            artifactBaseVersion = getter(artifactClass.getMethod("getBaseVersion"));
+            final Method getMetadata = repositoryEventClass.getMethod("getMetadata");
+            metadata = getter(getMetadata);
+            final Class<?> metadataClass = getMetadata.getReturnType();
+            metadataGroupId = getter(metadataClass.getMethod("getGroupId"));
+            metadataArtifactId = getter(metadataClass.getMethod("getArtifactId"));
+            metadataVersion = getter(metadataClass.getMethod("getVersion"));
+            metadataType = getter(metadataClass.getMethod("getType"));
+            final Method getRepository = repositoryEventClass.getMethod("getRepository");
+            repository = getter(getRepository);
+            repositoryId = getter(getRepository.getReturnType().getMethod("getId"));
+            file = getter(repositoryEventClass.getMethod("getFile"));
+            exception = getter(repositoryEventClass.getMethod("getException"));
+        }
+
+        private void register(final Object eventType, final String identifier, final boolean start, final boolean isMetadata,
+                              final boolean threadBound) {
+            types.put(eventType, new RepositoryEventType(identifier, start, isMetadata, threadBound));
+        }
+
+        @Override
+        public CapturedEvent capture(final Object event) {
+            // Repository events are immutable; everything else is read when the event is completed
+            final RepositoryEventType eventType = types.get(invoke(type, event));
+            return eventType == null ? IGNORED_CAPTURE : new CapturedEvent(Event.Category.REPOSITORY, this, event, eventType, null);
+        }
+
+        @Override
+        public Event complete(final CapturedEvent captured) {
+            final Object event = captured.event;
+            final RepositoryEventType eventType = (RepositoryEventType) captured.type;
+
+            final Object resource = invoke(eventType.metadata ? metadata : artifact, event);
+            final String name = resource == null ? null : eventType.metadata ? metadataName(resource) : artifactName(resource);
+            final boolean snapshot =
+                    eventType.metadata && resource != null && String.valueOf(invoke(metadataVersion, resource)).endsWith("SNAPSHOT");
+
+            final Object eventRepository = invoke(repository, event);
+            final String repositoryName = eventRepository == null ? null : (String) invoke(repositoryId, eventRepository);
+            final RepositoryResource.Origin origin = RepositoryResource.Origin.of(eventRepository);
+
+            long size = -1;
+            boolean failed = false;
+            if (!eventType.start) {
+                final File eventFile = (File) invoke(file, event);
+                size = eventFile == null ? -1 : eventFile.length();
+                failed = invoke(exception, event) != null;
+            }
+
+            // Artifact resolution starts without knowing the repository it will be resolved from
+            final String correlationKey = Event.ARTIFACT_RESOLUTION.equals(eventType.identifier)
+                    ? eventType.identifier + ":" + name
+                    : eventType.identifier + ":" + name + "@" + repositoryName;
+            return new Event(Event.Category.REPOSITORY, eventType.identifier, eventType.start, correlationKey, eventType.threadBound,
+                    new RepositoryResource(name, repositoryName, origin, size, failed, snapshot));
+        }
+
+        /**
+         * @return groupId:artifactId:extension[:classifier]:baseVersion; the resolution of a snapshot starts with the
+         * requested version (1.0-SNAPSHOT) and ends with the resolved one (1.0-20240101.120000-1), so the version itself
+         * can not be used to correlate the events (or to sample them alike)
+         */
+        private String artifactName(final Object resource) {
+            final StringBuilder result = new StringBuilder();
+            result.append(invoke(artifactGroupId, resource)).append(':').append(invoke(artifactArtifactId, resource)).append(':')
+                    .append(invoke(artifactExtension, resource));
+            final String classifier = (String) invoke(artifactClassifier, resource);
+            if (classifier != null && !classifier.isEmpty()) {
+                result.append(':').append(classifier);
+            }
+            return result.append(':').append(invoke(artifactBaseVersion, resource)).toString();
+        }
+
+        /**
+         * @return groupId[:artifactId[:version]]/type (the parts that are empty for group and artifact metadata are left out)
+         */
+        private String metadataName(final Object resource) {
+            final StringBuilder result = new StringBuilder();
+            result.append(invoke(metadataGroupId, resource));
+            final String artifactId = (String) invoke(metadataArtifactId, resource);
+            if (artifactId != null && !artifactId.isEmpty()) {
+                result.append(':').append(artifactId);
+                final String version = (String) invoke(metadataVersion, resource);
+                if (version != null && !version.isEmpty()) {
+                    result.append(':').append(version);
+                }
+            }
+            return result.append('/').append(invoke(metadataType, resource)).toString();
+        }
+    }
+
+    /**
+     * Supported type of repository event.
+     */
+    private static final class RepositoryEventType {
+        private final String identifier;
+        private final boolean start;
+        private final boolean metadata;
+        private final boolean threadBound;
+
+        RepositoryEventType(final String identifier, final boolean start, final boolean metadata, final boolean threadBound) {
+            this.identifier = identifier;
+            this.start = start;
+            this.metadata = metadata;
+            this.threadBound = threadBound;
+        }
+    }
+
+    /**
+     * Resolves execution events; mojo, project, session and fork events are supported.
+     */
+    private static final class ExecutionEventResolver implements Resolver, Completer {
+
+        private static final MethodType DEPENDENCIES = MethodType.methodType(Object.class, Object.class, Object.class, boolean.class);
+
+        private final MethodHandle type;
+        private final Map<Object, Event.Category> categories = new IdentityHashMap<>();
+        private final Map<Object, String> identifiers = new IdentityHashMap<>();
+        private final Map<Object, Boolean> starts = new IdentityHashMap<>();
+        private final Set<Object> failures = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final MethodHandle mojoExecution;
+        private final MethodHandle groupId;
+        private final MethodHandle artifactId;
+        private final MethodHandle goal;
+        private final MethodHandle executionId;
+
+        private final MethodHandle session;
+        private final MethodHandle currentProject;
+        private final MethodHandle projectGroupId;
+        private final MethodHandle projectArtifactId;
+        private final MethodHandle projectDependencyGraph;
+        private final MethodHandle upstreamProjects;
+        private final MethodHandle request;
+        private final MethodHandle degreeOfConcurrency;
+
+        ExecutionEventResolver(final Class<?> executionEventClass) throws ReflectiveOperationException {
+            final Method getType = executionEventClass.getMethod("getType");
+            type = getter(getType);
+            for (final Object eventType : enumConstants(getType)) {
+                if (eventType.toString().endsWith("Failed")) {
+                    failures.add(eventType);
+                }
+                switch (eventType.toString()) {
+                    case "MojoStarted":
+                        register(eventType, Event.Category.MOJO, null, true);
+                        break;
+                    case "MojoSucceeded":
+                    case "MojoFailed":
+                        register(eventType, Event.Category.MOJO, null, false);
+                        break;
+                    case "ProjectStarted":
+                        register(eventType, Event.Category.PROJECT, Event.PROJECT, true);
+                        break;
+                    case "ProjectSucceeded":
+                    case "ProjectFailed":
+                        register(eventType, Event.Category.PROJECT, Event.PROJECT, false);
+                        break;
+                    case "ProjectDiscoveryStarted":
+                        // There is no end event; discovery ends when the session starts
+                        register(eventType, Event.Category.MAVEN, Event.PROJECT_DISCOVERY, true);
+                        break;
+                    case "SessionStarted":
+                        register(eventType, Event.Category.MAVEN, Event.SESSION, true);
+                        break;
+                    case "SessionEnded":
+                        register(eventType, Event.Category.MAVEN, Event.SESSION, false);
+                        break;
+                    case "ForkStarted":
+                        register(eventType, Event.Category.MAVEN, Event.FORK, true);
+                        break;
+                    case "ForkSucceeded":
+                    case "ForkFailed":
+                        register(eventType, Event.Category.MAVEN, Event.FORK, false);
+                        break;
+                    case "ForkedProjectStarted":
+                        register(eventType, Event.Category.MAVEN, Event.FORKED_PROJECT, true);
+                        break;
+                    case "ForkedProjectSucceeded":
+                    case "ForkedProjectFailed":
+                        register(eventType, Event.Category.MAVEN, Event.FORKED_PROJECT, false);
+                        break;
+                    default:
+                        // Not supported (ProjectSkipped has no duration)
+                }
+            }
+
+            final Method getMojoExecution = executionEventClass.getMethod("getMojoExecution");
+            mojoExecution = getter(getMojoExecution);
+            final Class<?> mojoExecutionClass = getMojoExecution.getReturnType();
+            groupId = getter(mojoExecutionClass.getMethod("getGroupId"));
+            artifactId = getter(mojoExecutionClass.getMethod("getArtifactId"));
+            goal = getter(mojoExecutionClass.getMethod("getGoal"));
+            executionId = getter(mojoExecutionClass.getMethod("getExecutionId"));
+
+            final Method getSession = executionEventClass.getMethod("getSession");
+            session = getter(getSession);
+            final Class<?> sessionClass = getSession.getReturnType();
+            final Method getCurrentProject = sessionClass.getMethod("getCurrentProject");
+            currentProject = getter(getCurrentProject);
+            final Class<?> projectClass = getCurrentProject.getReturnType();
+            projectGroupId = getter(projectClass.getMethod("getGroupId"));
+            projectArtifactId = getter(projectClass.getMethod("getArtifactId"));
+
+            final Method getProjectDependencyGraph = sessionClass.getMethod("getProjectDependencyGraph");
+            projectDependencyGraph = getter(getProjectDependencyGraph);
+            upstreamProjects = handle(getProjectDependencyGraph.getReturnType().getMethod("getUpstreamProjects", projectClass, boolean.class),
+                    DEPENDENCIES);
+            final Method getRequest = sessionClass.getMethod("getRequest");
+            request = getter(getRequest);
+            degreeOfConcurrency = getter(getRequest.getReturnType().getMethod("getDegreeOfConcurrency"));
+        }
+
+        private void register(final Object eventType, final Event.Category category, final String identifier, final boolean start) {
+            categories.put(eventType, category);
+            if (identifier != null) {
+                identifiers.put(eventType, identifier);
+            }
+            starts.put(eventType, start);
+        }
+
+        @Override
+        public CapturedEvent capture(final Object event) {
+            final Object eventType = invoke(type, event);
+            final Event.Category category = categories.get(eventType);
+            if (category == null) {
+                return IGNORED_CAPTURE;
+            }
+            // The session moves on to other projects, so its current project is read right away
+            final Object mavenSession = invoke(session, event);
+            return new CapturedEvent(category, this, event, eventType, mavenSession == null ? null : invoke(currentProject, mavenSession));
+        }
+
+        @Override
+        public Event complete(final CapturedEvent captured) {
+            final Object event = captured.event;
+            final Object eventType = captured.type;
+            final Event.Category category = captured.category;
+            final boolean start = starts.get(eventType);
+
+            final Object mavenSession = invoke(session, event);
+            final Object mavenProject = captured.project;
+            final String project = projectIdentifier(mavenProject);
+
+            final Event result;
+            if (category == Event.Category.MOJO) {
+                final Object execution = invoke(mojoExecution, event);
+                final String identifier = invoke(groupId, execution) + ":" + invoke(artifactId, execution) + ":" + invoke(goal, execution)
+                        + "@" + invoke(executionId, execution);
+                result = new Event(category, identifier, start, project, failures.contains(eventType));
+            } else if (category == Event.Category.PROJECT && start && mavenProject != null) {
+                result = new Event(category, Event.PROJECT, true, project, determineUpstreamProjects(mavenSession, mavenProject),
+                        (Integer) invoke(degreeOfConcurrency, invoke(request, mavenSession)));
+            } else {
+                result = new Event(category, identifiers.get(eventType), start, project, failures.contains(eventType));
+            }
+            return result;
+        }
+
+        private String projectIdentifier(final Object mavenProject) {
+            return mavenProject == null ? null : invoke(projectGroupId, mavenProject) + ":" + invoke(projectArtifactId, mavenProject);
+        }
+
+        private List<String> determineUpstreamProjects(final Object mavenSession, final Object mavenProject) {
+            final Object graph = invoke(projectDependencyGraph, mavenSession);
+            if (graph == null) {
+                return Collections.emptyList();
+            }
+
+            final List<String> result = new ArrayList<>();
+            try {
+                for (final Object upstreamProject : (List<?>) (Object) upstreamProjects.invokeExact(graph, mavenProject, false)) {
+                    result.add(projectIdentifier(upstreamProject));
+                }
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Event object captured on the thread that emitted it.
+     */
+    static final class CapturedEvent {
+        private final Event.Category category;
+        private final Completer completer;
+        private final Object event;
+        private final Object type;
+        private final Object project;
+
+        CapturedEvent(final Event.Category category, final Completer completer, final Object event, final Object type,
+                      final Object project) {
+            this.category = category;
+            this.completer = completer;
+            this.event = event;
+            this.type = type;
+            this.project = project;
+        }
+
+        /**
+         * @return category of the event
+         */
+        Event.Category getCategory() {
+            return category;
+        }
+    }
+
+    /**
+     * Captures the event object of a specific class.
+     */
+    @FunctionalInterface
+    private interface Resolver {
+        CapturedEvent capture(Object event);
+    }
+
+    /**
+     * Completes a captured event.
+     */
+    @FunctionalInterface
+    private interface Completer {
+        Event complete(CapturedEvent captured);
+    }
+}
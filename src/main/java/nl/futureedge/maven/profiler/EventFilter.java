@@ -0,0 +1,140 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Determines which events are recorded: by category, by identifier (include and exclude patterns, in which {@code *}
+ * matches any characters) and, for the high-frequency repository events, by a sampling percentage.
+ *
+ * <p>
+ * Repository events are sampled by the hash of their resource, so the start and end event of a download or resolution
+ * are always both sampled (or both skipped), and the same artifacts are sampled in every build (so builds remain
+ * comparable). The result of matching the patterns is cached per identifier.
+ * </p>
+ * <p>
+ * The patterns do not apply to the events that structure the build (execution, project discovery, session and project):
+ * the phases, the critical path and the module matrix are derived from them. They can only be left out by category.
+ * </p>
+ */
+final class EventFilter {
+
+    private static final int ALL = 100;
+
+    private static final Set<String> STRUCTURAL =
+            new HashSet<>(Arrays.asList(Event.EXECUTION, Event.PROJECT_DISCOVERY, Event.SESSION, Event.PROJECT));
+
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+    private final Set<Event.Category> categories;
+    private final int repositorySampling;
+    private final ConcurrentMap<String, Boolean> identifiers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param includes patterns of the identifiers to record (all identifiers, if empty)
+     * @param excludes patterns of the identifiers not to record
+     * @param categories categories to record
+     * @param repositorySampling percentage (0 - 100) of the repository events to record
+     */
+    EventFilter(final Collection<String> includes, final Collection<String> excludes, final Set<Event.Category> categories,
+                final int repositorySampling) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+        this.categories = categories.isEmpty() ? EnumSet.noneOf(Event.Category.class) : EnumSet.copyOf(categories);
+        this.repositorySampling = Math.max(0, Math.min(ALL, repositorySampling));
+    }
+
+    private static List<Pattern> compile(final Collection<String> patterns) {
+        final List<Pattern> result = new ArrayList<>();
+        for (final String pattern : patterns) {
+            final StringBuilder regex = new StringBuilder();
+            final String[] parts = pattern.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                if (!parts[i].isEmpty()) {
+                    regex.append(Pattern.quote(parts[i]));
+                }
+            }
+            result.add(Pattern.compile(regex.toString()));
+        }
+        return result;
+    }
+
+    /**
+     * Check only the category; used on the thread emitting the event, before the identifier is known.
+     * @param category category of the event
+     * @return true, if events of the category should be recorded
+     */
+    boolean accept(final Event.Category category) {
+        return categories.contains(category);
+    }
+
+    /**
+     * @param event event
+     * @return true, if the event should be recorded
+     */
+    boolean accept(final Event event) {
+        if (!accept(event.getCategory())) {
+            return false;
+        }
+        if (event.getIdentifier() != null && !(includes.isEmpty() && excludes.isEmpty()) && !STRUCTURAL.contains(event.getIdentifier())
+                && !accept(event.getIdentifier())) {
+            return false;
+        }
+        if (event.getCategory() == Event.Category.REPOSITORY && repositorySampling < ALL) {
+            return event.getResource() != null && isSampled(event.getResource().getName(), repositorySampling);
+        }
+        return true;
+    }
+
+    private boolean accept(final String identifier) {
+        final Boolean cached = identifiers.get(identifier);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean result = (includes.isEmpty() || matches(includes, identifier)) && !matches(excludes, identifier);
+        identifiers.put(identifier, result);
+        return result;
+    }
+
+    private static boolean matches(final List<Pattern> patterns, final String identifier) {
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(identifier).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key key (can be null)
+     * @param percentage percentage (0 - 100) of the keys to sample
+     * @return true, if the key is sampled (always the same result for the same key)
+     */
+    static boolean isSampled(final String key, final int percentage) {
+        if (key == null) {
+            return percentage >= ALL;
+        }
+        // String hash codes are specified, so they are the same in every build; spread them over all bits first
+        final int hash = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), ALL) < percentage;
+    }
+
+    /**
+     * @return percentage (0 - 100) of the repository events that are recorded
+     */
+    int getRepositorySampling() {
+        return repositorySampling;
+    }
+}
@@ -0,0 +1,192 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands items from many producer threads to a single consumer thread through a bounded, lock-free ring buffer.
+ *
+ * <p>
+ * A producer claims a slot with a single atomic increment and publishes the item by advancing the sequence of the slot;
+ * it never takes a lock. Only when the buffer is full (the consumer is a full buffer behind) does a producer wait for
+ * its slot to be freed, so no item is ever dropped. The consumer processes the items in the order the slots were claimed,
+ * and parks (without timeout) when the buffer is empty; a producer only unparks it when it is parked, so an idle pipeline
+ * costs nothing.
+ * </p>
+ * @param <T> item type
+ */
+final class EventPipeline<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventPipeline.class.getName());
+
+    /**
+     * Longest a producer (or flush) parks while waiting for the consumer.
+     */
+    private static final long MAXIMUM_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int SPINS = 100;
+
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    /**
+     * Per slot: the position of the next item to publish (free), or the position plus one (published).
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder producerWaits = new LongAdder();
+    private final Consumer<T> consumer;
+    private final Thread thread;
+
+    /**
+     * Position of the next item to process; only written by the consumer thread.
+     */
+    private volatile long head;
+    private volatile boolean closed;
+    /**
+     * Set by the consumer before it parks on an empty buffer.
+     */
+    private volatile boolean parked;
+
+    /**
+     * Constructor.
+     * @param capacity capacity of the buffer (rounded up to a power of two)
+     * @param consumer processes the items (on the consumer thread)
+     * @param name name of the consumer thread
+     */
+    EventPipeline(final int capacity, final Consumer<T> consumer, final String name) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        mask = size - 1;
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.consumer = consumer;
+        thread = new Thread(this::consume, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start the consumer thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Publish an item; waits only when the buffer is full.
+     * @param item item
+     * @return false, if the pipeline is closed (the item is not processed)
+     */
+    boolean publish(final T item) {
+        if (closed) {
+            return false;
+        }
+        final long position = tail.getAndIncrement();
+        final int index = (int) position & mask;
+        if (sequences.get(index) != position) {
+            producerWaits.increment();
+            int spins = 0;
+            while (sequences.get(index) != position) {
+                if (!thread.isAlive()) {
+                    // Closed while waiting; the consumer will never free the slot
+                    return false;
+                }
+                backOff(spins++);
+            }
+        }
+        items.lazySet(index, item);
+        // Ordered after the item; the consumer reads the sequence before the item. A volatile write (not lazySet), so it
+        // is ordered before reading parked: the consumer either sees the item or is unparked
+        sequences.set(index, position + 1);
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Wait until all items published before the call have been processed.
+     */
+    void flush() {
+        final long target = tail.get();
+        int spins = 0;
+        while (head < target && thread.isAlive()) {
+            LockSupport.unpark(thread);
+            backOff(spins++);
+        }
+    }
+
+    /**
+     * Process the remaining items and stop the consumer thread. Items published after closing are not processed.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of times a producer had to wait for a full buffer
+     */
+    long getProducerWaits() {
+        return producerWaits.sum();
+    }
+
+    private void consume() {
+        int idle = 0;
+        while (true) {
+            final long position = head;
+            final int index = (int) position & mask;
+            if (sequences.get(index) == position + 1) {
+                final T item = items.get(index);
+                items.lazySet(index, null);
+                sequences.lazySet(index, position + mask + 1);
+                idle = 0;
+                try {
+                    consumer.accept(item);
+                } catch (final RuntimeException e) {
+                    // An exception would stop the processing of all later events
+                    LOGGER.warn("Could not process event", e);
+                }
+                // After processing, so a flush waits for the item to be processed
+                head = position + 1;
+            } else if (closed && position == tail.get()) {
+                return;
+            } else if (idle < 2 * SPINS) {
+                backOff(idle++);
+            } else {
+                parked = true;
+                // Check again after setting parked; a producer publishing before that did not unpark
+                if (sequences.get(index) != position + 1 && !closed) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+
+    /**
+     * Spin, then yield, then park (progressively longer, up to {@link #MAXIMUM_PARK}) while waiting.
+     */
+    private static void backOff(final int attempt) {
+        if (attempt < SPINS) {
+            // Busy spin; the item is usually available within a few hundred nanoseconds
+            return;
+        } else if (attempt < 2 * SPINS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(MAXIMUM_PARK, 1000L << Math.min(10, attempt - 2 * SPINS)));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durations per identifier, kept as streaming aggregates and a histogram (the individual durations are not stored).
+ */
+final class ExecutionStatistics {
+
+    private static final Comparator<Execution> SLOWEST_FIRST =
+            Comparator.comparingLong(Execution::getTotal).reversed().thenComparing(Execution::getIdentifier);
+
+    private final ConcurrentMap<String, Execution> executions = new ConcurrentHashMap<>();
+
+    /**
+     * Record a duration.
+     * @param identifier identifier
+     * @param duration duration
+     */
+    void record(final String identifier, final long duration) {
+        executions.computeIfAbsent(identifier, Execution::new).record(duration);
+    }
+
+    /**
+     * Add the durations recorded elsewhere (for example in another build).
+     * @param identifier identifier
+     * @param count number of durations
+     * @param total total of the durations
+     * @param min minimum duration
+     * @param max maximum duration
+     * @param histogram histogram of the durations
+     */
+    void add(final String identifier, final long count, final long total, final long min, final long max, final Histogram histogram) {
+        executions.computeIfAbsent(identifier, Execution::new).add(count, total, min, max, histogram);
+    }
+
+    boolean isEmpty() {
+        return executions.isEmpty();
+    }
+
+    /**
+     * @param identifier identifier
+     * @return statistics of the identifier, or null if nothing has been recorded for the identifier
+     */
+    Execution get(final String identifier) {
+        return executions.get(identifier);
+    }
+
+    /**
+     * @return statistics per identifier, slowest (highest total) first
+     */
+    List<Execution> getExecutions() {
+        final List<Execution> result = new ArrayList<>(executions.values());
+        result.sort(SLOWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Durations recorded for an identifier.
+     */
+    static final class Execution {
+        private final String identifier;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final Histogram histogram = new Histogram();
+
+        Execution(final String identifier) {
+            this.identifier = identifier;
+        }
+
+        void record(final long duration) {
+            count.increment();
+            total.add(duration);
+            min.accumulate(duration);
+            max.accumulate(duration);
+            histogram.record(duration);
+        }
+
+        void add(final long executions, final long duration, final long minimum, final long maximum, final Histogram durations) {
+            if (executions == 0) {
+                return;
+            }
+            count.add(executions);
+            total.add(duration);
+            min.accumulate(minimum);
+            max.accumulate(maximum);
+            histogram.add(durations);
+        }
+
+        String getIdentifier() {
+            return identifier;
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getTotal() {
+            return total.sum();
+        }
+
+        long getMin() {
+            return getCount() == 0 ? 0 : min.get();
+        }
+
+        long getMax() {
+            return getCount() == 0 ? 0 : max.get();
+        }
+
+        long getAverage() {
+            final long executions = getCount();
+            return executions == 0 ? 0 : getTotal() / executions;
+        }
+
+        Histogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * @param percentile percentile (0 - 100)
+         * @return duration at the percentile (within the precision of the histogram, but never outside the recorded minimum
+         * and maximum)
+         */
+        long getPercentile(final double percentile) {
+            return Math.max(getMin(), Math.min(getMax(), histogram.getValueAtPercentile(percentile)));
+        }
+    }
+}
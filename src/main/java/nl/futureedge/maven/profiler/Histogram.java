@@ -0,0 +1,144 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with a fixed memory footprint.
+ *
+ * <p>
+ * Values below {@value #SUB_BUCKET_COUNT} are counted exactly; larger values are counted per power of two, each split into
+ * {@value #HALF_SUB_BUCKET_COUNT} linear sub-buckets (only the {@value #SUB_BUCKET_BITS} most significant bits of a value
+ * are kept). A sub-bucket is at most 1/32 of its lowest value wide, so percentiles are accurate to within 1/32 (about 3%)
+ * of the value, over the whole range of a long.
+ * </p>
+ */
+final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Record a value.
+     * @param value value (negative values are recorded as 0)
+     */
+    void record(final long value) {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+    }
+
+    /**
+     * Add all values recorded in another histogram to this histogram.
+     * @param other histogram
+     */
+    void add(final Histogram other) {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            final long count = other.counts.get(index);
+            if (count != 0) {
+                counts.addAndGet(index, count);
+            }
+        }
+    }
+
+    /**
+     * Write the counts of the non-empty buckets.
+     * @param output output
+     * @throws IOException if the counts could not be written
+     */
+    void write(final DataOutput output) throws IOException {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        int buckets = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            snapshot[index] = counts.get(index);
+            if (snapshot[index] != 0) {
+                buckets++;
+            }
+        }
+        output.writeShort(buckets);
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            if (snapshot[index] != 0) {
+                output.writeShort(index);
+                output.writeLong(snapshot[index]);
+            }
+        }
+    }
+
+    /**
+     * Add the counts written by {@link #write(DataOutput)} to this histogram.
+     * @param input input
+     * @throws IOException if the counts could not be read
+     */
+    void read(final DataInput input) throws IOException {
+        final int buckets = input.readUnsignedShort();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            final int index = input.readUnsignedShort();
+            final long count = input.readLong();
+            if (index >= BUCKET_COUNT || count < 0) {
+                throw new IOException("Invalid histogram bucket " + index);
+            }
+            counts.addAndGet(index, count);
+        }
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    long getCount() {
+        long result = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            result += counts.get(index);
+        }
+        return result;
+    }
+
+    /**
+     * Determine the value at a percentile.
+     * @param percentile percentile (0 - 100)
+     * @return highest value that is equivalent (within the precision of the histogram) to the value below which the given
+     * percentage of the recorded values fall, or 0 if no values have been recorded
+     */
+    long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            snapshot[index] = counts.get(index);
+            total += snapshot[index];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long cumulative = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            cumulative += snapshot[index];
+            if (cumulative >= target) {
+                return highestValueOf(index);
+            }
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // Keep the (SUB_BUCKET_BITS) most significant bits of the value
+        final int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+    }
+
+    static long highestValueOf(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        final long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
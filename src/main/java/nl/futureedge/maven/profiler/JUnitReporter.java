@@ -0,0 +1,58 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the report as JUnit XML ({@code TEST-mojo-timer.xml}), so CI servers can show (and trend) the timings as test
+ * durations. Each module is a test suite with a test case per mojo; all executions are reported in the test suite
+ * {@code mojo-timer}.
+ */
+public final class JUnitReporter implements Reporter {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    @Override
+    public String getName() {
+        return "junit";
+    }
+
+    @Override
+    public File report(final Report report, final File outputDirectory) throws IOException {
+        final File file = new File(outputDirectory, "TEST-mojo-timer.xml");
+        Files.createDirectories(outputDirectory.toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuites>\n");
+            long total = 0;
+            for (final Report.Execution execution : report.getExecutions()) {
+                total += execution.getTotal();
+            }
+            writeSuite(writer, "mojo-timer", total, report.getExecutions());
+            for (final Report.Module module : report.getModules()) {
+                writeSuite(writer, module.getName(), module.getTotal(), module.getMojos());
+            }
+            writer.write("</testsuites>\n");
+        }
+        return file;
+    }
+
+    private static void writeSuite(final Writer writer, final String name, final long total, final List<? extends Report.Totals> cases)
+            throws IOException {
+        writer.write(String.format(Locale.ROOT, "  <testsuite name=\"%1$s\" tests=\"%2$d\" failures=\"0\" errors=\"0\" time=\"%3$.3f\">\n",
+                escape(name), cases.size(), total / NANOS_PER_SECOND));
+        for (final Report.Totals testCase : cases) {
+            writer.write(String.format(Locale.ROOT, "    <testcase classname=\"%1$s\" name=\"%2$s\" time=\"%3$.3f\"/>\n",
+                    escape(name), escape(testCase.getName()), testCase.getTotal() / NANOS_PER_SECOND));
+        }
+        writer.write("  </testsuite>\n");
+    }
+
+    private static String escape(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;").replace("'", "&apos;");
+    }
+}
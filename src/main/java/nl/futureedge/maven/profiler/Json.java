@@ -0,0 +1,54 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.Locale;
+
+/**
+ * JSON utilities.
+ */
+final class Json {
+
+    private Json() {
+        throw new IllegalStateException("Do not instantiate");
+    }
+
+    /**
+     * Quote (and escape) a string as JSON string.
+     * @param value value
+     * @return JSON string ({@code null} if the value is null)
+     */
+    static String quote(final String value) {
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder result = new StringBuilder(value.length() + 2);
+        result.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        result.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+            }
+        }
+        result.append('"');
+        return result.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the report as JSON ({@code mojo-timer.json}).
+ */
+public final class JsonReporter implements Reporter {
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public File report(final Report report, final File outputDirectory) throws IOException {
+        final File file = new File(outputDirectory, "mojo-timer.json");
+        Files.createDirectories(outputDirectory.toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"timestamp\": " + report.getTimestamp() + ",\n  \"executions\": [");
+            final List<Report.Execution> executions = report.getExecutions();
+            for (int i = 0; i < executions.size(); i++) {
+                final Report.Execution execution = executions.get(i);
+                writer.write(String.format(Locale.ROOT, "%1$s\n    {\"name\": %2$s, \"count\": %3$d, \"total\": %4$d, \"min\": %5$d, \"max\": %6$d, "
+                                + "\"average\": %7$d, \"p50\": %8$d, \"p90\": %9$d, \"p99\": %10$d}",
+                        i == 0 ? "" : ",", Json.quote(execution.getName()), execution.getCount(), execution.getTotal(), execution.getMin(),
+                        execution.getMax(), execution.getAverage(), execution.getP50(), execution.getP90(), execution.getP99()));
+            }
+            writer.write("\n  ],\n  \"modules\": [");
+            final List<Report.Module> modules = report.getModules();
+            for (int i = 0; i < modules.size(); i++) {
+                final Report.Module module = modules.get(i);
+                writer.write(String.format(Locale.ROOT, "%1$s\n    {\"name\": %2$s, \"count\": %3$d, \"total\": %4$d, \"mojos\": [",
+                        i == 0 ? "" : ",", Json.quote(module.getName()), module.getCount(), module.getTotal()));
+                final List<Report.Totals> mojos = module.getMojos();
+                for (int j = 0; j < mojos.size(); j++) {
+                    final Report.Totals mojo = mojos.get(j);
+                    writer.write(String.format(Locale.ROOT, "%1$s\n      {\"name\": %2$s, \"count\": %3$d, \"total\": %4$d}",
+                            j == 0 ? "" : ",", Json.quote(mojo.getName()), mojo.getCount(), mojo.getTotal()));
+                }
+                writer.write(mojos.isEmpty() ? "]}" : "\n    ]}");
+            }
+            writer.write("\n  ]\n}\n");
+        }
+        return file;
+    }
+}
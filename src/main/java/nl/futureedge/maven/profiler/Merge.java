@@ -0,0 +1,264 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the data files of several builds (see {@code mojo-timer.data}), for example the shards of a reactor that is built
+ * on several CI nodes, into one report.
+ *
+ * <p>
+ * Usage: {@code java -cp maven-mojo-timer.jar nl.futureedge.maven.profiler.Merge [options] <file or directory>...}
+ * </p>
+ * <p>
+ * Directories are searched (recursively) for {@code mojo-timer*.dat} files. The files are read one at a time and added
+ * to the merged statistics, so the memory used depends on the number of distinct mojos and modules, not on the number of
+ * files. Percentiles are determined from the merged histograms. Every execution is attributed to the nodes that ran it,
+ * and every module to the nodes that built it.
+ * </p>
+ */
+public final class Merge {
+
+    private static final String USAGE = "Usage: java -cp maven-mojo-timer.jar " + Merge.class.getName()
+            + " [--report json,csv,junit] [--directory <output directory>] [--resolution us|ms|s] [--top-modules <n>] [--top-mojos <n>]"
+            + " <file or directory>...";
+
+    private final ExecutionStatistics executions = new ExecutionStatistics();
+    private final ModuleMatrix modules = new ModuleMatrix();
+    /**
+     * Totals per node, per execution identifier (the "module" is the execution identifier, the "mojo" is the node).
+     */
+    private final ModuleMatrix nodesPerExecution = new ModuleMatrix();
+    private final Map<String, SortedSet<String>> nodesPerModule = new HashMap<>();
+    private final SortedSet<String> nodes = new TreeSet<>();
+    private long timestamp = Long.MAX_VALUE;
+    private int runs;
+
+    public static void main(final String[] args) {
+        final int status = run(args, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Merge the data files and write the report.
+     * @param args command line arguments
+     * @param out output for the report
+     * @param err output for errors
+     * @return exit status (0 if successful)
+     */
+    static int run(final String[] args, final PrintStream out, final PrintStream err) {
+        final List<String> reports = new ArrayList<>();
+        File directory = new File(".");
+        Durations.Resolution resolution = Durations.Resolution.MICROSECONDS;
+        int topModules = 10;
+        int topMojos = 5;
+        final List<File> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--report":
+                        for (final String report : value(args, ++i).split(",")) {
+                            if (!report.trim().isEmpty()) {
+                                reports.add(report.trim().toLowerCase(Locale.ROOT));
+                            }
+                        }
+                        break;
+                    case "--directory":
+                        directory = new File(value(args, ++i));
+                        break;
+                    case "--resolution":
+                        resolution = Durations.Resolution.parse(value(args, ++i));
+                        if (resolution == null) {
+                            throw new IllegalArgumentException("Invalid resolution " + args[i]);
+                        }
+                        break;
+                    case "--top-modules":
+                        topModules = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--top-mojos":
+                        topMojos = Integer.parseInt(value(args, ++i));
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        inputs.add(new File(args[i]));
+                }
+            }
+        } catch (final IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        if (inputs.isEmpty()) {
+            err.println(USAGE);
+            return 2;
+        }
+
+        final Merge merge = new Merge();
+        for (final File input : inputs) {
+            try {
+                for (final File file : find(input)) {
+                    try {
+                        merge.add(file);
+                    } catch (final IOException e) {
+                        // The part read before the error has been merged
+                        err.println("Could not read " + file + " completely: " + e.getMessage());
+                    }
+                }
+            } catch (final IOException e) {
+                err.println("Could not search " + input + ": " + e.getMessage());
+            }
+        }
+        if (merge.runs == 0) {
+            err.println("No data files found");
+            return 1;
+        }
+
+        merge.display(out, resolution, topModules, topMojos);
+        return merge.writeReports(reports, directory, out, err) ? 0 : 1;
+    }
+
+    private static String value(final String[] args, final int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static List<File> find(final File input) throws IOException {
+        if (!input.isDirectory()) {
+            return Arrays.asList(input);
+        }
+        try (Stream<Path> paths = Files.walk(input.toPath())) {
+            return paths.filter(path -> Files.isRegularFile(path))
+                    .filter(path -> path.getFileName().toString().startsWith("mojo-timer") && path.getFileName().toString().endsWith(".dat"))
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Add a data file to the merged statistics.
+     * @param file data file
+     * @throws IOException if the file could not be read
+     */
+    void add(final File file) throws IOException {
+        RunData.read(file, new RunData.Visitor() {
+            private String node;
+
+            @Override
+            public void run(final long runTimestamp, final String runNode, final String commit) {
+                // Without a node name the file identifies the run
+                node = runNode.isEmpty() ? file.getPath() : runNode;
+                nodes.add(node);
+                timestamp = Math.min(timestamp, runTimestamp);
+            }
+
+            @Override
+            public void execution(final String identifier, final long count, final long total, final long min, final long max,
+                                  final Histogram histogram) {
+                executions.add(identifier, count, total, min, max, histogram);
+                nodesPerExecution.add(identifier, node, count, total);
+            }
+
+            @Override
+            public void module(final String module, final String mojo, final long count, final long total) {
+                modules.add(module, mojo, count, total);
+                nodesPerModule.computeIfAbsent(module, key -> new TreeSet<>()).add(node);
+            }
+        });
+        runs++;
+    }
+
+    ExecutionStatistics getExecutions() {
+        return executions;
+    }
+
+    ModuleMatrix getModules() {
+        return modules;
+    }
+
+    /**
+     * @param identifier execution identifier
+     * @return totals per node that ran the execution, slowest first
+     */
+    List<ModuleMatrix.Totals> getNodes(final String identifier) {
+        return nodesPerExecution.getSlowestMojos(identifier, Integer.MAX_VALUE);
+    }
+
+    private void display(final PrintStream out, final Durations.Resolution resolution, final int topModules, final int topMojos) {
+        out.println(String.format("Merged %1$d runs from %2$d nodes: %3$s", runs, nodes.size(), String.join(", ", nodes)));
+        out.println("Execution times:");
+        for (final ExecutionStatistics.Execution execution : executions.getExecutions()) {
+            out.println(String.format("[%1$s] executions: %3$3d, min: %4$s, max: %5$s, avg: %6$s, p50: %7$s, p90: %8$s, p99: %9$s - %2$s",
+                    Durations.format(execution.getTotal(), resolution), execution.getIdentifier(), execution.getCount(),
+                    Durations.format(execution.getMin(), resolution), Durations.format(execution.getMax(), resolution),
+                    Durations.format(execution.getAverage(), resolution), Durations.format(execution.getPercentile(50), resolution),
+                    Durations.format(execution.getPercentile(90), resolution), Durations.format(execution.getPercentile(99), resolution)));
+            if (nodes.size() > 1) {
+                for (final ModuleMatrix.Totals node : getNodes(execution.getIdentifier())) {
+                    out.println(String.format("    [%1$s] executions: %3$3d - %2$s",
+                            Durations.format(node.getTotal(), resolution), node.getName(), node.getCount()));
+                }
+            }
+        }
+
+        if (!modules.isEmpty()) {
+            out.println("Slowest modules:");
+            for (final ModuleMatrix.Totals module : modules.getSlowestModules(topModules)) {
+                out.println(String.format("[%1$s] mojo executions: %3$3d - %2$s (%4$s)", Durations.format(module.getTotal(), resolution),
+                        module.getName(), module.getCount(), String.join(", ", nodesPerModule.get(module.getName()))));
+                for (final ModuleMatrix.Totals mojo : modules.getSlowestMojos(module.getName(), topMojos)) {
+                    out.println(String.format("    [%1$s] executions: %3$3d - %2$s",
+                            Durations.format(mojo.getTotal(), resolution), mojo.getName(), mojo.getCount()));
+                }
+            }
+        }
+    }
+
+    private boolean writeReports(final List<String> names, final File directory, final PrintStream out, final PrintStream err) {
+        if (names.isEmpty()) {
+            return true;
+        }
+        final Map<String, Reporter> reporters = new HashMap<>();
+        for (final Reporter reporter : ServiceLoader.load(Reporter.class, Merge.class.getClassLoader())) {
+            reporters.putIfAbsent(reporter.getName(), reporter);
+        }
+
+        boolean result = true;
+        final Report report = Report.create(timestamp, executions, modules);
+        for (final String name : names) {
+            final Reporter reporter = reporters.get(name);
+            if (reporter == null) {
+                err.println("Unknown report '" + name + "'; available reports: " + new TreeSet<>(reporters.keySet()));
+                result = false;
+                continue;
+            }
+            try {
+                out.println("Report written to " + reporter.report(report, directory));
+            } catch (final IOException | RuntimeException e) {
+                err.println("Could not write report '" + name + "': " + e);
+                result = false;
+            }
+        }
+        return result;
+    }
+}
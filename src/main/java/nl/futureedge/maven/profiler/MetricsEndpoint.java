@@ -0,0 +1,114 @@
+package nl.futureedge.maven.profiler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics of the build in the OpenMetrics text format on {@code /metrics}, for the lifetime of the build (so
+ * long builds can be scraped while they run).
+ *
+ * <p>
+ * Requests are handled one at a time on a single daemon thread, so scraping cannot take more than one thread away from
+ * the build. Unless a host is given, the metrics are only served on the loopback address, so they are not exposed to other
+ * machines that can reach the build agent.
+ * </p>
+ */
+final class MetricsEndpoint {
+
+    static final String PATH = "/metrics";
+
+    private final MetricsRegistry registry;
+    private HttpServer server;
+    private ExecutorService executor;
+    /**
+     * Size of the last response; the next one is usually about as large.
+     */
+    private int size = 4096;
+
+    /**
+     * Constructor.
+     * @param registry metrics to serve
+     */
+    MetricsEndpoint(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Start serving the metrics.
+     * @param host host name or address to bind to (null for the loopback address)
+     * @param port port (0 for any free port)
+     * @throws IOException if the port could not be bound
+     */
+    void start(final String host, final int port) throws IOException {
+        final InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(PATH, this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mojo-timer-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return url the metrics are served on
+     */
+    String getUrl() {
+        final InetSocketAddress address = server.getAddress();
+        final String host = address.getAddress().getHostAddress();
+        return "http://" + (host.indexOf(':') < 0 ? host : "[" + host + "]") + ":" + address.getPort() + PATH;
+    }
+
+    /**
+     * @return port the metrics are served on
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop serving the metrics.
+     */
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final StringBuilder output = new StringBuilder(size);
+            registry.render(output);
+            size = output.length();
+            final byte[] body = output.toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", MetricsRegistry.CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
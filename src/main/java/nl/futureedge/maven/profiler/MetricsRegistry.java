@@ -0,0 +1,283 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Durations of the build in the OpenMetrics (Prometheus) text format.
+ *
+ * <p>
+ * Mojo executions are exposed as a histogram labelled by plugin, goal, execution id, module and outcome; other timed
+ * events (dependency resolution, repository events, ...) as counters labelled by identifier. The lines of a series
+ * (metric name and labels) are rendered once, when the series is first recorded; rendering the metrics only appends
+ * these lines and the current values, so it does not allocate per sample. Recording and rendering can happen on
+ * different threads.
+ * </p>
+ */
+final class MetricsRegistry {
+
+    /**
+     * Content type of the OpenMetrics text format.
+     */
+    static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final String MOJO_DURATION = "mojo_timer_mojo_duration_seconds";
+    private static final String EVENTS = "mojo_timer_events";
+    private static final String EVENT_DURATION = "mojo_timer_event_duration_seconds";
+
+    private static final String SUCCEEDED = "succeeded";
+    private static final String FAILED = "failed";
+
+    /**
+     * Upper bounds (in milliseconds) of the histogram buckets, from fast mojos (resources) to the slow ones (tests).
+     */
+    private static final long[] BOUNDS = {10, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000, 120_000, 300_000, 600_000};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+    private static final String[] LE = new String[BOUNDS.length + 1];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BOUNDS[i]);
+            // Canonical float form ("1.0", not "1"), as required for the bucket bounds
+            LE[i] = Double.toString(BOUNDS[i] / 1000.0);
+        }
+        LE[BOUNDS.length] = "+Inf";
+    }
+
+    /**
+     * Per mojo identifier, per module: the series of the succeeded and failed executions.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, MojoSeries[]>> mojos = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, EventSeries> events = new ConcurrentHashMap<>();
+
+    // Sorted by labels, so the output is stable
+    private final ConcurrentSkipListMap<String, MojoSeries> mojoSeries = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, EventSeries> eventSeries = new ConcurrentSkipListMap<>();
+
+    /**
+     * Record a mojo execution.
+     * @param mojo mojo identifier ({@code groupId:artifactId:goal@executionId})
+     * @param module module (groupId:artifactId) the mojo was executed for (can be null)
+     * @param failed true, if the mojo failed
+     * @param duration duration (in nanoseconds)
+     */
+    void recordMojo(final String mojo, final String module, final boolean failed, final long duration) {
+        ConcurrentMap<String, MojoSeries[]> modules = mojos.get(mojo);
+        if (modules == null) {
+            modules = mojos.computeIfAbsent(mojo, key -> new ConcurrentHashMap<>());
+        }
+        final String moduleName = module == null ? "" : module;
+        MojoSeries[] outcomes = modules.get(moduleName);
+        if (outcomes == null) {
+            outcomes = modules.computeIfAbsent(moduleName, key -> createMojoSeries(mojo, key));
+        }
+        outcomes[failed ? 1 : 0].record(duration);
+    }
+
+    private MojoSeries[] createMojoSeries(final String mojo, final String module) {
+        final MojoSeries[] result = new MojoSeries[2];
+        for (int i = 0; i < result.length; i++) {
+            final String labels = mojoLabels(mojo, module, i == 0 ? SUCCEEDED : FAILED);
+            result[i] = new MojoSeries(labels);
+            mojoSeries.put(labels, result[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return labels of a mojo series (without braces)
+     */
+    static String mojoLabels(final String mojo, final String module, final String outcome) {
+        // groupId:artifactId:goal@executionId
+        final int at = mojo.lastIndexOf('@');
+        final String withoutExecution = at < 0 ? mojo : mojo.substring(0, at);
+        final int colon = withoutExecution.lastIndexOf(':');
+        final StringBuilder result = new StringBuilder();
+        appendLabel(result, "plugin", colon < 0 ? "" : withoutExecution.substring(0, colon));
+        result.append(',');
+        appendLabel(result, "goal", withoutExecution.substring(colon + 1));
+        result.append(',');
+        appendLabel(result, "execution", at < 0 ? "" : mojo.substring(at + 1));
+        result.append(',');
+        appendLabel(result, "module", module);
+        result.append(',');
+        appendLabel(result, "outcome", outcome);
+        return result.toString();
+    }
+
+    /**
+     * Record a timed event other than a mojo execution.
+     * @param identifier event identifier
+     * @param duration duration (in nanoseconds)
+     */
+    void recordEvent(final String identifier, final long duration) {
+        EventSeries series = events.get(identifier);
+        if (series == null) {
+            series = events.computeIfAbsent(identifier, key -> {
+                final StringBuilder labels = new StringBuilder();
+                appendLabel(labels, "identifier", key);
+                final EventSeries result = new EventSeries(labels.toString());
+                eventSeries.put(labels.toString(), result);
+                return result;
+            });
+        }
+        series.count.incrementAndGet();
+        series.total.addAndGet(duration);
+    }
+
+    /**
+     * Render the metrics in the OpenMetrics text format.
+     * @param output output
+     */
+    void render(final StringBuilder output) {
+        output.append("# TYPE " + MOJO_DURATION + " histogram\n");
+        output.append("# UNIT " + MOJO_DURATION + " seconds\n");
+        output.append("# HELP " + MOJO_DURATION + " Duration of mojo executions.\n");
+        for (final MojoSeries series : mojoSeries.values()) {
+            series.render(output);
+        }
+
+        output.append("# TYPE " + EVENTS + " counter\n");
+        output.append("# HELP " + EVENTS + " Number of timed Maven events other than mojo executions.\n");
+        for (final EventSeries series : eventSeries.values()) {
+            output.append(series.countLine).append(series.count.get()).append('\n');
+        }
+        output.append("# TYPE " + EVENT_DURATION + " counter\n");
+        output.append("# UNIT " + EVENT_DURATION + " seconds\n");
+        output.append("# HELP " + EVENT_DURATION + " Total duration of timed Maven events other than mojo executions.\n");
+        for (final EventSeries series : eventSeries.values()) {
+            appendSeconds(output.append(series.totalLine), series.total.get());
+            output.append('\n');
+        }
+        output.append("# EOF\n");
+    }
+
+    /**
+     * Write the metrics to a file (for the textfile collector of the node exporter); the file is replaced at once, so a
+     * collector never reads a partial file.
+     * @param file file
+     * @throws IOException if the file could not be written
+     */
+    void write(final File file) throws IOException {
+        final StringBuilder output = new StringBuilder();
+        render(output);
+        final File directory = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        final File temporary = new File(directory, file.getName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+            writer.append(output);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void appendLabel(final StringBuilder output, final String name, final String value) {
+        output.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                output.append('\\').append(c);
+            } else if (c == '\n') {
+                output.append("\\n");
+            } else {
+                output.append(c);
+            }
+        }
+        output.append('"');
+    }
+
+    /**
+     * Append a duration in seconds, without rounding (and without the allocation of formatting a double).
+     */
+    static void appendSeconds(final StringBuilder output, final long nanos) {
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        final long fraction = nanos - TimeUnit.SECONDS.toNanos(seconds);
+        output.append(seconds);
+        if (fraction != 0) {
+            // Nine digits (with leading zeros), without trailing zeros
+            final int start = output.append('.').length();
+            output.append(fraction + TimeUnit.SECONDS.toNanos(1)).deleteCharAt(start);
+            int end = output.length();
+            while (output.charAt(end - 1) == '0') {
+                end--;
+            }
+            output.setLength(end);
+        }
+    }
+
+    /**
+     * Histogram of the executions of a mojo in a module with an outcome.
+     */
+    private static final class MojoSeries {
+        private final String[] bucketLines = new String[LE.length];
+        private final String countLine;
+        private final String sumLine;
+        private final AtomicLongArray buckets = new AtomicLongArray(LE.length);
+        private final AtomicLong total = new AtomicLong();
+
+        MojoSeries(final String labels) {
+            for (int i = 0; i < LE.length; i++) {
+                bucketLines[i] = MOJO_DURATION + "_bucket{" + labels + ",le=\"" + LE[i] + "\"} ";
+            }
+            countLine = MOJO_DURATION + "_count{" + labels + "} ";
+            sumLine = MOJO_DURATION + "_sum{" + labels + "} ";
+        }
+
+        void record(final long duration) {
+            int bucket = 0;
+            while (bucket < BOUNDS_NANOS.length && duration > BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            total.addAndGet(duration);
+        }
+
+        void render(final StringBuilder output) {
+            if (isEmpty()) {
+                // Outcome that did not occur (yet)
+                return;
+            }
+            long cumulative = 0;
+            for (int i = 0; i < bucketLines.length; i++) {
+                cumulative += buckets.get(i);
+                output.append(bucketLines[i]).append(cumulative).append('\n');
+            }
+            output.append(countLine).append(cumulative).append('\n');
+            appendSeconds(output.append(sumLine), total.get());
+            output.append('\n');
+        }
+
+        private boolean isEmpty() {
+            for (int i = 0; i < buckets.length(); i++) {
+                if (buckets.get(i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Count and total duration of a timed event.
+     */
+    private static final class EventSeries {
+        private final String countLine;
+        private final String totalLine;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+
+        EventSeries(final String labels) {
+            countLine = EVENTS + "_total{" + labels + "} ";
+            totalLine = EVENT_DURATION + "_total{" + labels + "} ";
+        }
+    }
+}
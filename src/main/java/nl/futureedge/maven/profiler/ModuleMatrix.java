@@ -0,0 +1,121 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time spent per module and per mojo within the module.
+ */
+final class ModuleMatrix {
+
+    private static final Comparator<Totals> SLOWEST_FIRST =
+            Comparator.comparingLong(Totals::getTotal).reversed().thenComparing(Totals::getName);
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Totals>> modules = new ConcurrentHashMap<>();
+
+    /**
+     * Record a mojo execution.
+     * @param module module (groupId:artifactId)
+     * @param mojo mojo identifier
+     * @param duration duration
+     */
+    void record(final String module, final String mojo, final long duration) {
+        modules.computeIfAbsent(module, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(mojo, Totals::new)
+                .add(duration);
+    }
+
+    /**
+     * Add mojo executions recorded elsewhere (for example in another build).
+     * @param module module (groupId:artifactId)
+     * @param mojo mojo identifier
+     * @param count number of executions
+     * @param total total duration
+     */
+    void add(final String module, final String mojo, final long count, final long total) {
+        modules.computeIfAbsent(module, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(mojo, Totals::new)
+                .add(count, total);
+    }
+
+    boolean isEmpty() {
+        return modules.isEmpty();
+    }
+
+    /**
+     * Determine the slowest modules.
+     * @param top maximum number of modules to return
+     * @return totals per module, slowest first
+     */
+    List<Totals> getSlowestModules(final int top) {
+        final List<Totals> result = new ArrayList<>();
+        for (final Map.Entry<String, ConcurrentMap<String, Totals>> module : modules.entrySet()) {
+            final Totals moduleTotals = new Totals(module.getKey());
+            for (final Totals mojo : module.getValue().values()) {
+                moduleTotals.add(mojo);
+            }
+            result.add(moduleTotals);
+        }
+        return slowest(result, top);
+    }
+
+    /**
+     * Determine the slowest mojos of a module.
+     * @param module module
+     * @param top maximum number of mojos to return
+     * @return totals per mojo, slowest first
+     */
+    List<Totals> getSlowestMojos(final String module, final int top) {
+        final Map<String, Totals> mojos = modules.get(module);
+        return mojos == null ? new ArrayList<>() : slowest(new ArrayList<>(mojos.values()), top);
+    }
+
+    private static List<Totals> slowest(final List<Totals> totals, final int top) {
+        totals.sort(SLOWEST_FIRST);
+        return totals.size() > top ? new ArrayList<>(totals.subList(0, Math.max(0, top))) : totals;
+    }
+
+    /**
+     * Number of executions and total time.
+     */
+    static final class Totals {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+
+        Totals(final String name) {
+            this.name = name;
+        }
+
+        void add(final long duration) {
+            count.incrementAndGet();
+            total.addAndGet(duration);
+        }
+
+        void add(final Totals other) {
+            add(other.getCount(), other.getTotal());
+        }
+
+        void add(final long executions, final long duration) {
+            count.addAndGet(executions);
+            total.addAndGet(duration);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        long getTotal() {
+            return total.get();
+        }
+    }
+}
@@ -1,17 +1,19 @@
 package nl.futureedge.maven.profiler;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
+import java.util.ServiceLoader;
 import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.apache.maven.eventspy.AbstractEventSpy;
@@ -27,23 +29,170 @@ public final class Profiler extends AbstractEventSpy {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Profiler.class.getName());
 
-    private ThreadLocal<Map<String, Long>> starts = ThreadLocal.withInitial(HashMap::new);
-    private SortedMap<String, List<Long>> executions = Collections.synchronizedSortedMap(new TreeMap<>());
-    private SortedSet<String> unsupportedEvents = Collections.synchronizedSortedSet(new TreeSet<>());
+    /**
+     * Minimum number of previous builds a mojo or module must occur in before it is compared (a single previous build is
+     * too noisy as baseline).
+     */
+    private static final int HISTORY_MINIMUM_RUNS = 3;
+
+    /**
+     * Name of the (default) report that is written to the build log.
+     */
+    private static final String LOG_REPORT = "log";
+
+    /**
+     * Maven does not signal the end of project discovery; it ends when the session starts.
+     */
+    private static final Event PROJECT_DISCOVERY_END = new Event(Event.Category.MAVEN, Event.PROJECT_DISCOVERY, false);
+
+    /**
+     * Number of events that can be waiting to be processed before the build threads have to wait.
+     */
+    private static final int BUFFER_SIZE = 16384;
+
+    /**
+     * Identifier of the time the profiler takes from the build threads; kept apart from the execution statistics, so it
+     * does not end up in the reports, the history or the data file.
+     */
+    static final String OVERHEAD = "mojo-timer:overhead";
+
+    private final EventDispatcher dispatcher = new EventDispatcher();
+    private final long origin = System.nanoTime();
+    private final long timestamp = System.currentTimeMillis();
+    private Configuration configuration = new Configuration(System.getProperties());
+    private EventFilter filter = createFilter(configuration);
+    private Durations.Resolution resolution = configuration.getResolution();
+    private final LongAdder filteredEvents = new LongAdder();
+    private final ExecutionStatistics.Execution overhead = new ExecutionStatistics.Execution(OVERHEAD);
+
+    // Only accessed by the thread processing the events
+    private Map<String, Long> starts = new HashMap<>();
+    private ExecutionStatistics executions = new ExecutionStatistics();
+    private SortedSet<String> unsupportedEvents = new TreeSet<>();
+    private ModuleMatrix modules = new ModuleMatrix();
+    private BuildTimeline timeline = new BuildTimeline();
+    private BuildPhases phases = new BuildPhases();
+    private ChromeTraceWriter trace;
+    private Watchdog watchdog;
+    private StackSampler sampler;
+    private MetricsRegistry metrics;
+    private MetricsEndpoint metricsEndpoint;
+    private TransferStatistics downloads = new TransferStatistics(configuration.getTopArtifacts());
+    private TransferStatistics deployments = new TransferStatistics(configuration.getTopArtifacts());
+    private ResolverStatistics resolver = new ResolverStatistics();
+    private final LongAdder badSamples = new LongAdder();
+    private ResourceUsage resources = new ResourceUsage();
+    private Map<String, ResourceUsage.Snapshot> snapshots = new HashMap<>();
+    private long processingTime;
+    private final EventPipeline<EventRecord> pipeline = new EventPipeline<>(BUFFER_SIZE, this::process, "mojo-timer-events");
+
+    /**
+     * Constructor; starts the thread processing the events.
+     */
+    public Profiler() {
+        pipeline.start();
+    }
 
     @Override
-    public void close() {
-        if (!executions.isEmpty()) {
-            LOGGER.info("Execution times:");
-            final SortedMap<Long, String> displays = new TreeMap<>(Comparator.reverseOrder());
-            for (final Map.Entry<String, List<Long>> execution : executions.entrySet()) {
-                createDisplay(displays, execution.getKey(), execution.getValue());
+    public void init(final Context context) throws Exception {
+        super.init(context);
+        configuration = Configuration.fromContextData(context.getData());
+        filter = createFilter(configuration);
+        resolution = configuration.getResolution();
+        downloads = new TransferStatistics(configuration.getTopArtifacts());
+        deployments = new TransferStatistics(configuration.getTopArtifacts());
+
+        if (configuration.isTrace()) {
+            final File traceFile = configuration.getTraceFile();
+            try {
+                trace = new ChromeTraceWriter(traceFile, origin);
+            } catch (final IOException e) {
+                LOGGER.warn("Could not create trace file " + traceFile, e);
             }
+        }
+        if (configuration.isWatchdog()) {
+            startWatchdog();
+        }
+        if (configuration.isSampler()) {
+            sampler = new StackSampler(TimeUnit.MILLISECONDS.toNanos(configuration.getSamplerInterval()), configuration.getSamplerDepth());
+            sampler.start();
+        }
+        if (configuration.isMetrics() || configuration.getMetricsPort() >= 0) {
+            metrics = new MetricsRegistry();
+        }
+        if (configuration.getMetricsPort() >= 0) {
+            startMetricsEndpoint();
+        }
+    }
+
+    private void startMetricsEndpoint() {
+        metricsEndpoint = new MetricsEndpoint(metrics);
+        try {
+            metricsEndpoint.start(configuration.getMetricsHost(), configuration.getMetricsPort());
+            LOGGER.info("Serving build metrics on {}", metricsEndpoint.getUrl());
+        } catch (final IOException e) {
+            LOGGER.warn("Could not serve build metrics on port " + configuration.getMetricsPort(), e);
+            metricsEndpoint = null;
+        }
+    }
+
+    private static EventFilter createFilter(final Configuration configuration) {
+        return new EventFilter(configuration.getIncludes(), configuration.getExcludes(), configuration.getCategories(),
+                configuration.getRepositorySampling());
+    }
 
-            for (final String display : displays.values()) {
-                LOGGER.info(display);
+    private void startWatchdog() {
+        Map<String, Long> baseline = Collections.emptyMap();
+        if (configuration.isHistory()) {
+            try {
+                baseline = BuildHistory.medianAverages(
+                        new BuildHistory(configuration.getHistoryDirectory()).readRecent(configuration.getHistoryBaseline()));
+            } catch (final IOException e) {
+                LOGGER.warn("Could not read build history in " + configuration.getHistoryDirectory(), e);
             }
         }
+        watchdog = new Watchdog(baseline, TimeUnit.SECONDS.toNanos(configuration.getWatchdogBudget()), configuration.getWatchdogMultiple(),
+                TimeUnit.SECONDS.toNanos(configuration.getWatchdogMinimum()), TimeUnit.SECONDS.toNanos(configuration.getWatchdogInterval()), configuration.getWatchdogFile(),
+                configuration.getOutputDirectory());
+        watchdog.start();
+    }
+
+    @Override
+    public void close() {
+        final long closeStart = System.nanoTime();
+        // Process the remaining events
+        pipeline.close();
+
+        if (watchdog != null) {
+            watchdog.stop();
+        }
+        if (sampler != null) {
+            sampler.stop();
+        }
+
+        final List<String> reports = configuration.getReports();
+        if (reports.contains(LOG_REPORT)) {
+            displayLog();
+        }
+
+        if (configuration.isHistory()) {
+            recordHistory();
+        }
+
+        if (badSamples.sum() > 0) {
+            LOGGER.info("------------------------------------------------------------------------");
+            LOGGER.info("Invalid durations ignored: {}", badSamples.sum());
+        }
+        if (pipeline.getProducerWaits() > 0) {
+            LOGGER.info("------------------------------------------------------------------------");
+            LOGGER.info("Build threads waited for the profiler (full event buffer): {}", pipeline.getProducerWaits());
+        }
+
+        if (filteredEvents.sum() > 0) {
+            LOGGER.info("------------------------------------------------------------------------");
+            LOGGER.info("Events not recorded (filtered or not sampled): {}{}", filteredEvents.sum(), filter.getRepositorySampling() < 100
+                    ? " (repository events sampled: " + filter.getRepositorySampling() + "%)" : "");
+        }
 
         if (!unsupportedEvents.isEmpty()) {
             LOGGER.info("------------------------------------------------------------------------");
@@ -52,202 +201,476 @@ public final class Profiler extends AbstractEventSpy {
                 LOGGER.info(" - {}", unsupportedEvent);
             }
         }
+
+        writeReports(reports);
+
+        if (configuration.isData()) {
+            writeData();
+        }
+
+        if (sampler != null) {
+            writeStacks();
+        }
+
+        if (configuration.isMetrics()) {
+            writeMetrics();
+        }
+        if (metricsEndpoint != null) {
+            metricsEndpoint.stop();
+        }
+
+        if (trace != null) {
+            try {
+                trace.close();
+                LOGGER.info("Trace written to {}", configuration.getTraceFile());
+            } catch (final IOException e) {
+                LOGGER.warn("Could not close trace file", e);
+            }
+        }
+
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("Profiler overhead: {} in {} events (avg: {}, p99: {}, max: {}), {} in close; {} processing the events (on the "
+                        + "profiler thread)", format(overhead.getTotal()).trim(), overhead.getCount(), format(overhead.getAverage()).trim(),
+                format(overhead.getPercentile(99)).trim(), format(overhead.getMax()).trim(), format(System.nanoTime() - closeStart).trim(),
+                format(processingTime).trim());
         LOGGER.info("------------------------------------------------------------------------");
     }
 
-    private void createDisplay(final SortedMap<Long, String> displays, final String key, final List<Long> values) {
-        long fastest = Long.MAX_VALUE;
-        long slowest = Long.MIN_VALUE;
-        long total = 0;
+    private void displayLog() {
+        if (!executions.isEmpty()) {
+            LOGGER.info("Execution times:");
+            for (final ExecutionStatistics.Execution execution : executions.getExecutions()) {
+                LOGGER.info(createDisplay(execution));
+            }
+        }
 
-        for (final Long value : values) {
-            fastest = fastest < value ? fastest : value;
-            slowest = slowest > value ? slowest : value;
-            total += value;
+        if (!modules.isEmpty()) {
+            displayModules();
         }
 
-        final long average = total / values.size();
-        final String display = String.format("[%1$s] executions: %3$3d, min: %4$s, max: %5$s, avg: %6$s - %2$s",
-                format(total), key, values.size(), format(fastest), format(slowest), format(average));
+        if (!resources.isEmpty()) {
+            displayResources();
+        }
+
+        if (!resolver.isEmpty()) {
+            displayResolver();
+        }
+        if (!downloads.isEmpty()) {
+            displayTransfers("Artifact downloads", downloads);
+        }
+        if (!deployments.isEmpty()) {
+            displayTransfers("Artifact deployments", deployments);
+        }
+
+        final CriticalPath criticalPath = CriticalPath.determine(timeline);
+        if (criticalPath != null && criticalPath.getDegreeOfConcurrency() > 1) {
+            displayCriticalPath(criticalPath);
+        }
 
-        displays.put(total, display);
+        final List<BuildPhases.Phase> buildPhases = phases.determine(timeline);
+        if (!buildPhases.isEmpty()) {
+            displayPhases(buildPhases);
+        }
     }
 
-    /**
-     * Format a duration to a fixed length.
-     * <ul>
-     * <li>XX.XXX sec (for under 100 seconds)</li>
-     * <li> XX:XX min (for under 100 minutes)</li>
-     * <li>XXX:XX hrs (for the rest)</li>
-     * </ul>
-     * @param durationInMillis duration in milliseconds
-     * @return formatted duration
-     */
-    private String format(final long durationInMillis) {
-        final long durationInSeconds = durationInMillis / 1000;
-        if (durationInSeconds < 100) {
-            // Under 100 seconds
-            final long millis = durationInMillis % 1000;
-            return String.format("%1$2d.%2$03d sec", durationInSeconds, millis);
-        } else {
-            final long durationInMinutes = durationInSeconds / 60;
-            if (durationInMinutes < 100) {
-                final long seconds = durationInSeconds % 60;
-                return String.format("%1$3d:%2$02d min", durationInMinutes, seconds);
-            } else {
-                final long durationInHours = durationInMinutes / 60;
-                final long minutes = durationInMinutes % 60;
-                return String.format("%1$3d:%2$02d hrs", durationInHours, minutes);
+    private void writeReports(final List<String> names) {
+        if (names.stream().allMatch(LOG_REPORT::equals)) {
+            return;
+        }
+        final Map<String, Reporter> reporters = new HashMap<>();
+        for (final Reporter reporter : ServiceLoader.load(Reporter.class, Profiler.class.getClassLoader())) {
+            reporters.putIfAbsent(reporter.getName(), reporter);
+        }
+
+        Report report = null;
+        for (final String name : names) {
+            if (LOG_REPORT.equals(name)) {
+                continue;
+            }
+            final Reporter reporter = reporters.get(name);
+            if (reporter == null) {
+                LOGGER.warn("Unknown report '{}'; available reports: {}", name, new TreeSet<>(reporters.keySet()));
+                continue;
+            }
+            if (report == null) {
+                report = Report.create(timestamp, executions, modules);
+            }
+            try {
+                LOGGER.info("Report written to {}", reporter.report(report, configuration.getOutputDirectory()));
+            } catch (final IOException | RuntimeException e) {
+                LOGGER.warn("Could not write report '" + name + "'", e);
             }
         }
     }
 
-    @Override
-    public void onEvent(final Object object) {
-        Event event = determineEvent(object);
-        if (event == null) {
-            unsupportedEvents.add(object.getClass().getName());
+    private void displayPhases(final List<BuildPhases.Phase> buildPhases) {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("Build phases:");
+        for (final BuildPhases.Phase phase : buildPhases) {
+            LOGGER.info(String.format(phase.isThreadTime() ? "    [%1$s] - %2$s (thread time)" : "[%1$s] - %2$s",
+                    format(phase.getDuration()), phase.getName()));
+        }
+    }
 
-        } else if (event.getIdentifier() != null) {
-            if (event.isStart()) {
-                starts.get().put(event.getIdentifier(), System.currentTimeMillis());
-            } else {
-                if (starts.get().containsKey(event.getIdentifier())) {
-                    final long duration = System.currentTimeMillis() - starts.get().remove(event.getIdentifier());
-                    executions.computeIfAbsent(event.getIdentifier(), key -> Collections.synchronizedList(new ArrayList<>()));
-                    executions.get(event.getIdentifier()).add(duration);
-                } else {
-                    // Uncorrelated end
-                    LOGGER.warn("Received end event for event type that was not started: " + event.getIdentifier());
-                }
+    private void writeData() {
+        final File file = configuration.getDataFile();
+        try {
+            RunData.write(file, timestamp, configuration.getNode(), BuildHistory.readGitCommit(configuration.getBaseDirectory()), executions,
+                    modules);
+            LOGGER.info("Data written to {}", file);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write data file " + file, e);
+        }
+    }
+
+    private void writeMetrics() {
+        final File file = configuration.getMetricsFile();
+        try {
+            metrics.write(file);
+            LOGGER.info("Metrics written to {}", file);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write metrics file " + file, e);
+        }
+    }
+
+    private void writeStacks() {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info(String.format(Locale.ROOT, "Stack samples: %1$d (sampling time: %2$s)", sampler.getSamples(),
+                format(sampler.getSamplingTime()).trim()));
+        try {
+            final List<File> files = sampler.write(configuration.getSamplerDirectory());
+            if (!files.isEmpty()) {
+                LOGGER.info("Collapsed stacks of {} mojos written to {}", files.size(), configuration.getSamplerDirectory());
             }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write collapsed stacks to " + configuration.getSamplerDirectory(), e);
         }
     }
 
-    private Event determineEvent(final Object event) {
-        final Set<String> classesAndInterfaces = determineClassesAndInterfaces(event.getClass());
-
-        final Event result;
-        if (classesAndInterfaces.contains("org.eclipse.aether.RepositoryEvent")) {
-            result = determineRepositoryEvent(event);
-        } else if (classesAndInterfaces.contains("org.apache.maven.execution.ExecutionEvent")) {
-            result = determineExectionEvent(event);
-        } else if (classesAndInterfaces.contains("org.apache.maven.settings.building.SettingsBuildingRequest")) {
-            result = new Event("maven:settings-building", true);
-        } else if (classesAndInterfaces.contains("org.apache.maven.settings.building.SettingsBuildingResult")) {
-            result = new Event("maven:settings-building", false);
-        } else if (classesAndInterfaces.contains("org.apache.maven.toolchain.building.ToolchainsBuildingRequest")) {
-            result = new Event("maven:toolchains-building", true);
-        } else if (classesAndInterfaces.contains("org.apache.maven.toolchain.building.ToolchainsBuildingResult")) {
-            result = new Event("maven:toolchains-building", false);
-        } else if (classesAndInterfaces.contains("org.apache.maven.project.DependencyResolutionRequest")) {
-            result = new Event("maven:dependency-resolution", true);
-        } else if (classesAndInterfaces.contains("org.apache.maven.project.DependencyResolutionResult")) {
-            result = new Event("maven:dependency-resolution", false);
-        } else if (classesAndInterfaces.contains("org.apache.maven.execution.MavenExecutionRequest")) {
-            result = new Event(null, true);
-        } else if (classesAndInterfaces.contains("org.apache.maven.execution.MavenExecutionResult")) {
-            result = new Event(null, false);
-        } else {
-            result = null;
+    private void displayModules() {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("Slowest modules:");
+        for (final ModuleMatrix.Totals module : modules.getSlowestModules(configuration.getTopModules())) {
+            LOGGER.info(String.format("[%1$s] mojo executions: %3$3d - %2$s",
+                    format(module.getTotal()), module.getName(), module.getCount()));
+            for (final ModuleMatrix.Totals mojo : modules.getSlowestMojos(module.getName(), configuration.getTopMojos())) {
+                LOGGER.info(String.format("    [%1$s] executions: %3$3d - %2$s",
+                        format(mojo.getTotal()), mojo.getName(), mojo.getCount()));
+            }
+        }
+    }
+
+    private void displayResources() {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("Resource usage per mojo (thread CPU time{}):",
+                resources.isAllocationSupported() ? ", bytes allocated by the thread and garbage collections" : " and garbage collections");
+        for (final ResourceUsage.Mojo mojo : resources.getMojos()) {
+            LOGGER.info(String.format(Locale.ROOT, "[%1$s] cpu: %3$s (%4$3.0f%%), allocated: %5$8.1f MB, gc: %6$3d (%7$s) - %2$s",
+                    format(mojo.getWall()), mojo.getName(), resources.isCpuTimeSupported() ? format(mojo.getCpu()) : "       n/a",
+                    mojo.getCpuRatio() * 100, mojo.getAllocated() / (1024.0 * 1024.0), mojo.getGcCount(), format(mojo.getGcTime()).trim()));
+        }
+    }
+
+    private void displayResolver() {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("Resolver:");
+        LOGGER.info(String.format(Locale.ROOT,
+                "[%1$s] artifact resolutions: %2$d, local repository: %3$d, reactor: %4$d, remote: %5$d, unresolved: %6$d "
+                        + "(local repository hit ratio: %7$.0f%%)",
+                format(resolver.getResolutionTime()), resolver.getResolutions(), resolver.getLocal(), resolver.getWorkspace(),
+                resolver.getRemote(), resolver.getUnresolved(), resolver.getLocalHitRatio() * 100));
+        LOGGER.info(String.format("[%1$s] metadata resolution", format(resolver.getMetadataTime())));
+        for (final ResolverStatistics.Repository repository : resolver.getRepositories()) {
+            LOGGER.info(String.format("    [%1$s] checks: %3$3d, downloads: %4$3d (%5$s), snapshot downloads: %6$3d, invalid: %7$3d - %2$s",
+                    format(repository.getCheckTime()), repository.getId(), repository.getChecks(), repository.getDownloads(),
+                    format(repository.getDownloadTime()).trim(), repository.getSnapshotDownloads(), repository.getInvalid()));
         }
-        return result;
     }
 
-    private Set<String> determineClassesAndInterfaces(final Class<?> clazz) {
-        final Set<String> result = new HashSet<>();
-        Class<?> theClass = clazz;
-        while (theClass != null) {
-            for (final Class<?> theInterface : theClass.getInterfaces()) {
-                result.add(theInterface.getName());
+    private void displayTransfers(final String title, final TransferStatistics transfers) {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("{} per repository:", title);
+        for (final TransferStatistics.Repository repository : transfers.getRepositories()) {
+            LOGGER.info(String.format(Locale.ROOT, "[%1$s] transfers: %3$3d, failed: %4$3d, %5$.1f MB, %6$.2f MB/s - %2$s",
+                    format(repository.getDuration()), repository.getId(), repository.getCount(), repository.getFailed(),
+                    repository.getBytes() / (1024.0 * 1024.0), repository.getThroughput()));
+        }
+        final List<TransferStatistics.Transfer> slowest = transfers.getSlowest();
+        if (!slowest.isEmpty()) {
+            LOGGER.info("Slowest {}:", title.toLowerCase(Locale.ROOT));
+            for (final TransferStatistics.Transfer transfer : slowest) {
+                LOGGER.info(String.format(Locale.ROOT, "[%1$s] %3$.1f MB - %2$s",
+                        format(transfer.getDuration()), transfer.getResource(),
+                        Math.max(0, transfer.getResource().getSize()) / (1024.0 * 1024.0)));
+            }
+        }
+    }
+
+    private void displayCriticalPath(final CriticalPath criticalPath) {
+        LOGGER.info("------------------------------------------------------------------------");
+        LOGGER.info("Critical path (wall clock: {}):", format(criticalPath.getWallClock()).trim());
+        for (final CriticalPath.Step step : criticalPath.getSteps()) {
+            final BuildTimeline.Project project = step.getProject();
+            LOGGER.info(String.format("[%1$s] waited: %3$s - %2$s",
+                    format(project.getDuration()), project.getName(), format(step.getWaited())));
+            final List<BuildTimeline.Mojo> mojos = project.getMojos();
+            mojos.sort(Comparator.comparingLong(BuildTimeline.Mojo::getDuration).reversed());
+            for (final BuildTimeline.Mojo mojo : mojos.subList(0, Math.min(mojos.size(), Math.max(0, configuration.getTopMojos())))) {
+                LOGGER.info(String.format("    [%1$s] - %2$s", format(mojo.getDuration()), mojo.getName()));
             }
-            result.add(theClass.getName());
-            theClass = theClass.getSuperclass();
         }
-        return result;
+        LOGGER.info(String.format(Locale.ROOT, "Average thread utilisation: %1$.1f of %2$d threads (%3$.0f%%)",
+                criticalPath.getAverageThreadsBusy(), criticalPath.getDegreeOfConcurrency(), criticalPath.getThreadUtilisation() * 100));
+
+        LOGGER.info("Module slack:");
+        final List<CriticalPath.Slack> slacks = criticalPath.getSlacks();
+        for (final CriticalPath.Slack slack : slacks.subList(0, Math.min(slacks.size(), Math.max(0, configuration.getTopModules())))) {
+            LOGGER.info(String.format("[%1$s] - %2$s", format(slack.getSlack()), slack.getProject()));
+        }
     }
 
+    private void recordHistory() {
+        final BuildHistory history = new BuildHistory(configuration.getHistoryDirectory());
+        final BuildHistory.Run run = new BuildHistory.Run(timestamp, BuildHistory.readGitCommit(configuration.getBaseDirectory()));
+        for (final ExecutionStatistics.Execution execution : executions.getExecutions()) {
+            run.addExecution(execution.getIdentifier(), execution.getCount(), execution.getTotal());
+        }
+        for (final ModuleMatrix.Totals module : modules.getSlowestModules(Integer.MAX_VALUE)) {
+            run.addModule(module.getName(), module.getCount(), module.getTotal());
+        }
 
-    private Event determineRepositoryEvent(final Object event) {
         try {
-            final Class<?> repositoryClass = Class.forName("org.eclipse.aether.RepositoryEvent");
-            final String eventType = repositoryClass.getMethod("getType").invoke(event).toString();
-
-            final Event result;
-            switch (eventType) {
-                case "ARTIFACT_DOWNLOADING":
-                    result = new Event("maven:repository:artifact-download", true);
-                    break;
-                case "ARTIFACT_DOWNLOADED":
-                    result = new Event("maven:repository:artifact-download", false);
-                    break;
-                case "ARTIFACT_DEPLOYING":
-                    result = new Event("maven:repository:artifact-deployment", true);
-                    break;
-                case "ARTIFACT_DEPLOYED":
-                    result = new Event("maven:repository:artifact-deployment", false);
-                    break;
-                default:
-                    result = new Event(null, true);
-            }
-            return result;
-        } catch (ReflectiveOperationException e) {
-            // Could not determine repository event type
-            LOGGER.warn("Could not determine repository event type", e);
-            return null;
-        }
-    }
-
-    private Event determineExectionEvent(Object event) {
+            final List<BuildHistory.Run> baseline = history.readRecent(configuration.getHistoryBaseline());
+            final List<BuildHistory.Regression> regressions = BuildHistory.compare(run, baseline,
+                    Math.min(HISTORY_MINIMUM_RUNS, configuration.getHistoryBaseline()),
+                    configuration.getHistoryThreshold() / 100.0, TimeUnit.MILLISECONDS.toNanos(configuration.getHistoryMinimumIncrease()));
+            LOGGER.info("------------------------------------------------------------------------");
+            if (regressions.isEmpty()) {
+                LOGGER.info("No regressions compared to the median of the last {} builds", baseline.size());
+            } else {
+                LOGGER.info("Regressions compared to the median of the last {} builds:", baseline.size());
+                for (final BuildHistory.Regression regression : regressions) {
+                    LOGGER.info(String.format(Locale.ROOT, "[%1$s] baseline: %2$s (%3$+.0f%%) - %4$s %5$s",
+                            format(regression.getCurrent()), format(regression.getBaseline()), regression.getIncrease() * 100,
+                            regression.getKind(), regression.getName()));
+                }
+            }
+
+            history.append(run);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not update build history in " + configuration.getHistoryDirectory(), e);
+        }
+    }
+
+    private String createDisplay(final ExecutionStatistics.Execution execution) {
+        return String.format("[%1$s] executions: %3$3d, min: %4$s, max: %5$s, avg: %6$s, p50: %7$s, p90: %8$s, p99: %9$s - %2$s",
+                format(execution.getTotal()), execution.getIdentifier(), execution.getCount(),
+                format(execution.getMin()), format(execution.getMax()), format(execution.getAverage()),
+                format(execution.getPercentile(50)), format(execution.getPercentile(90)),
+                format(execution.getPercentile(99)));
+    }
+
+    private String format(final long duration) {
+        return Durations.format(duration, resolution);
+    }
+
+    /**
+     * Capture the event on the thread that emitted it; the event is completed and processed on a separate thread, so the
+     * build threads do not wait for (or contend on) the collection of the statistics. Events of categories that are not
+     * recorded (see {@link EventFilter}) are dropped right away. The time spent in this method is logged as the profiler
+     * overhead.
+     */
+    @Override
+    public void onEvent(final Object object) {
+        // Monotonic clock; wall clock time can jump (for example when the time is synchronised)
+        final long time = System.nanoTime();
+        // Captured right away, as the session of an execution event moves on to other projects
+        final EventDispatcher.CapturedEvent event = dispatcher.capture(object);
+        if (event != null && !filter.accept(event.getCategory())) {
+            filteredEvents.increment();
+        } else {
+            // The resources used by a thread can only be measured on the thread itself
+            final ResourceUsage.Snapshot snapshot = event != null && event.getCategory() == Event.Category.MOJO ? resources.snapshot() : null;
+            pipeline.publish(new EventRecord(event, event == null ? object.getClass().getName() : null, time, Thread.currentThread(),
+                    snapshot));
+        }
+        overhead.record(System.nanoTime() - time);
+    }
+
+    /**
+     * Wait until the events received so far have been processed.
+     */
+    void flush() {
+        pipeline.flush();
+    }
+
+    private void process(final EventRecord record) {
+        final long start = System.nanoTime();
         try {
-            final Class<?> executionEventInterface = Class.forName("org.apache.maven.execution.ExecutionEvent");
-            final String eventType = executionEventInterface.getMethod("getType").invoke(event).toString();
+            processEvent(record);
+        } finally {
+            processingTime += System.nanoTime() - start;
+        }
+    }
+
+    private void processEvent(final EventRecord record) {
+        if (record.event == null) {
+            unsupportedEvents.add(record.unsupportedType);
+            return;
+        }
+        final Event event = dispatcher.complete(record.event);
+        if (event == null) {
+            return;
+        }
+        if (!filter.accept(event)) {
+            // Filtered by identifier or not sampled
+            filteredEvents.increment();
+            return;
+        }
+        if (event.getCategory() == Event.Category.PROJECT && event.getProject() != null) {
+            recordProject(event, record.time, record.thread);
+        }
+        if (event.getIdentifier() != null) {
+            recordExecution(event, record.time, record.thread, record.snapshot);
+        } else if (event.getResource() != null) {
+            // Repository notification without duration (invalid metadata)
+            resolver.metadataInvalid(event.getResource());
+        }
+    }
 
-            final Event result;
-            switch (eventType) {
-                case "MojoStarted":
-                    result = new Event(getExecutionEventIdentifier(executionEventInterface, event), true);
-                    break;
-                case "MojoSucceeded":
-                case "MojoFailed":
-                    result = new Event(getExecutionEventIdentifier(executionEventInterface, event), false);
-                    break;
-                default:
-                    result = new Event(null, true);
+    private void recordProject(final Event event, final long time, final Thread thread) {
+        if (event.isStart()) {
+            timeline.projectStarted(event.getProject(), event.getUpstreamProjects(), event.getDegreeOfConcurrency(), time);
+        } else {
+            final BuildTimeline.Project project = timeline.projectFinished(event.getProject(), time);
+            if (trace != null && project != null) {
+                trace.complete(project.getName(), Event.Category.PROJECT, thread, project.getStart(), time, project.getName(),
+                        null);
             }
-            return result;
-        } catch (ReflectiveOperationException e) {
-            // Could not determine repository event type
-            LOGGER.warn("Could not determine execution event type", e);
-            return null;
         }
     }
 
-    private String getExecutionEventIdentifier(Class<?> executionEventInterface, Object event) throws ReflectiveOperationException {
-        Object mojoExecution = executionEventInterface.getMethod("getMojoExecution").invoke(event);
-        Class<?> mojoExecutionClass = Class.forName("org.apache.maven.plugin.MojoExecution");
-        String groupId = (String) mojoExecutionClass.getMethod("getGroupId").invoke(mojoExecution);
-        String artifactId = (String) mojoExecutionClass.getMethod("getArtifactId").invoke(mojoExecution);
-        String goal = (String) mojoExecutionClass.getMethod("getGoal").invoke(mojoExecution);
-        String executionId = (String) mojoExecutionClass.getMethod("getExecutionId").invoke(mojoExecution);
-        return groupId + ":" + artifactId + ":" + goal + "@" + executionId;
+    private void recordExecution(final Event event, final long time, final Thread thread, final ResourceUsage.Snapshot resourceSnapshot) {
+        if (event.getCategory() == Event.Category.MAVEN) {
+            recordPhase(event, time, thread);
+        }
+        final String eventKey = event.getCorrelationKey() == null ? event.getIdentifier() : event.getCorrelationKey();
+        final String correlationKey = event.isThreadBound() ? eventKey + "@" + thread.getId() : eventKey;
+        if (event.isStart()) {
+            starts.put(correlationKey, time);
+            if (event.getCategory() == Event.Category.MOJO) {
+                snapshots.put(correlationKey, resourceSnapshot);
+                if (watchdog != null) {
+                    watchdog.started(correlationKey, event.getIdentifier(), event.getProject(), thread, time);
+                }
+                if (sampler != null) {
+                    sampler.started(correlationKey, event.getIdentifier(), thread, time);
+                }
+            }
+        } else {
+            final ResourceUsage.Snapshot snapshot = event.getCategory() == Event.Category.MOJO ? snapshots.remove(correlationKey) : null;
+            if (watchdog != null && event.getCategory() == Event.Category.MOJO) {
+                watchdog.finished(correlationKey);
+            }
+            if (sampler != null && event.getCategory() == Event.Category.MOJO) {
+                sampler.finished(correlationKey);
+            }
+            final Long start = starts.remove(correlationKey);
+            if (start != null) {
+                final long duration = time - start;
+                if (duration < 0 || duration > time - origin) {
+                    // Not possible with a monotonic clock; do not let a broken clock distort the statistics
+                    badSamples.increment();
+                    LOGGER.debug("Ignoring invalid duration {} ns for {}", duration, event.getIdentifier());
+                    return;
+                }
+                executions.record(event.getIdentifier(), duration);
+                if (metrics != null) {
+                    recordMetrics(event, duration);
+                }
+                if (snapshot != null && resourceSnapshot != null) {
+                    resources.record(event.getIdentifier(), duration, snapshot, resourceSnapshot);
+                }
+                if (event.getCategory() == Event.Category.MOJO && event.getProject() != null) {
+                    modules.record(event.getProject(), event.getIdentifier(), duration);
+                    timeline.mojoFinished(event.getProject(), event.getIdentifier(), start, time);
+                }
+                if (event.getResource() != null) {
+                    recordRepository(event, start, time);
+                }
+                if (trace != null && event.getCategory() != Event.Category.PROJECT) {
+                    // Projects are traced by name
+                    trace.complete(event.getIdentifier(), event.getCategory(), thread, start, time, event.getProject(),
+                            event.getResource() == null ? null : event.getResource().toString());
+                }
+            } else {
+                // Uncorrelated end
+                LOGGER.warn("Received end event for event type that was not started: " + event.getIdentifier());
+            }
+        }
     }
 
-    private static final class Event {
-        private final String identifier;
-        private final boolean start;
+    private void recordMetrics(final Event event, final long duration) {
+        if (event.getCategory() == Event.Category.MOJO) {
+            metrics.recordMojo(event.getIdentifier(), event.getProject(), event.isFailed(), duration);
+        } else {
+            metrics.recordEvent(event.getIdentifier(), duration);
+        }
+    }
 
-        Event(final String identifier, final boolean start) {
-            this.identifier = identifier;
-            this.start = start;
+    private void recordPhase(final Event event, final long time, final Thread thread) {
+        if (Event.EXECUTION.equals(event.getIdentifier()) && event.isStart()) {
+            // Uptime at the time of the event (not of processing it, which can be later)
+            final long uptime = TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+            phases.startup(Math.max(0, uptime - (System.nanoTime() - time)));
+        }
+        if (Event.SESSION.equals(event.getIdentifier()) && event.isStart()
+                && starts.containsKey(Event.PROJECT_DISCOVERY + "@" + thread.getId())) {
+            recordExecution(PROJECT_DISCOVERY_END, time, thread, null);
         }
+        phases.mark(event.getIdentifier(), event.isStart(), time);
+    }
 
-        String getIdentifier() {
-            return identifier;
+    private void recordRepository(final Event event, final long start, final long end) {
+        final long duration = end - start;
+        switch (event.getIdentifier()) {
+            case Event.ARTIFACT_DOWNLOAD:
+                downloads.record(event.getResource(), start, end);
+                break;
+            case Event.ARTIFACT_DEPLOYMENT:
+                deployments.record(event.getResource(), start, end);
+                break;
+            case Event.ARTIFACT_RESOLUTION:
+                resolver.artifactResolved(event.getResource(), duration);
+                break;
+            case Event.METADATA_RESOLUTION:
+                resolver.metadataResolved(event.getResource(), duration);
+                break;
+            case Event.METADATA_DOWNLOAD:
+                resolver.metadataDownloaded(event.getResource(), duration);
+                break;
+            default:
+                // Not recorded separately
         }
+    }
+
+    /**
+     * Event as captured on the thread that emitted it.
+     */
+    private static final class EventRecord {
+        private final EventDispatcher.CapturedEvent event;
+        private final String unsupportedType;
+        private final long time;
+        private final Thread thread;
+        private final ResourceUsage.Snapshot snapshot;
 
-        boolean isStart() {
-            return start;
+        EventRecord(final EventDispatcher.CapturedEvent event, final String unsupportedType, final long time, final Thread thread,
+                    final ResourceUsage.Snapshot snapshot) {
+            this.event = event;
+            this.unsupportedType = unsupportedType;
+            this.time = time;
+            this.thread = thread;
+            this.snapshot = snapshot;
         }
     }
 }
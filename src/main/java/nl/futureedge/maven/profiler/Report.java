@@ -0,0 +1,155 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timings of a build, as passed to a {@link Reporter}. All durations are in nanoseconds.
+ */
+public final class Report {
+
+    private final long timestamp;
+    private final List<Execution> executions = new ArrayList<>();
+    private final List<Module> modules = new ArrayList<>();
+
+    Report(final long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return start of the build (milliseconds since the epoch)
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return executions per identifier, slowest (highest total) first
+     */
+    public List<Execution> getExecutions() {
+        return Collections.unmodifiableList(executions);
+    }
+
+    /**
+     * @return modules, slowest (highest total) first
+     */
+    public List<Module> getModules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    /**
+     * Create the report from the collected statistics.
+     * @param timestamp start of the build
+     * @param executions execution statistics
+     * @param modules module statistics
+     * @return report
+     */
+    static Report create(final long timestamp, final ExecutionStatistics executions, final ModuleMatrix modules) {
+        final Report result = new Report(timestamp);
+        for (final ExecutionStatistics.Execution execution : executions.getExecutions()) {
+            result.executions.add(new Execution(execution.getIdentifier(), execution.getCount(), execution.getTotal(),
+                    execution.getMin(), execution.getMax(), execution.getPercentile(50), execution.getPercentile(90),
+                    execution.getPercentile(99)));
+        }
+        for (final ModuleMatrix.Totals module : modules.getSlowestModules(Integer.MAX_VALUE)) {
+            final List<Totals> mojos = new ArrayList<>();
+            for (final ModuleMatrix.Totals mojo : modules.getSlowestMojos(module.getName(), Integer.MAX_VALUE)) {
+                mojos.add(new Totals(mojo.getName(), mojo.getCount(), mojo.getTotal()));
+            }
+            result.modules.add(new Module(module.getName(), module.getCount(), module.getTotal(), mojos));
+        }
+        return result;
+    }
+
+    /**
+     * Number of executions and total duration.
+     */
+    public static class Totals {
+        private final String name;
+        private final long count;
+        private final long total;
+
+        Totals(final String name, final long count, final long total) {
+            this.name = name;
+            this.count = count;
+            this.total = total;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Executions of a mojo (over all modules) or another timed part of the build.
+     */
+    public static final class Execution extends Totals {
+        private final long min;
+        private final long max;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+
+        Execution(final String name, final long count, final long total, final long min, final long max, final long p50,
+                  final long p90, final long p99) {
+            super(name, count, total);
+            this.min = min;
+            this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getAverage() {
+            return getCount() == 0 ? 0 : getTotal() / getCount();
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+    }
+
+    /**
+     * Mojo executions of a module.
+     */
+    public static final class Module extends Totals {
+        private final List<Totals> mojos;
+
+        Module(final String name, final long count, final long total, final List<Totals> mojos) {
+            super(name, count, total);
+            this.mojos = mojos;
+        }
+
+        /**
+         * @return totals per mojo, slowest first
+         */
+        public List<Totals> getMojos() {
+            return Collections.unmodifiableList(mojos);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the timings of a build in a (machine readable) format.
+ *
+ * <p>
+ * Reporters are found using {@link java.util.ServiceLoader} (register the implementation in
+ * {@code META-INF/services/nl.futureedge.maven.profiler.Reporter}) and are selected by name with the
+ * {@code mojo-timer.report} property, for example {@code -Dmojo-timer.report=log,json,csv}.
+ * </p>
+ */
+public interface Reporter {
+
+    /**
+     * @return name used to select the reporter
+     */
+    String getName();
+
+    /**
+     * Write the report.
+     * @param report timings of the build
+     * @param outputDirectory directory to write the report to
+     * @return file the report was written to
+     * @throws IOException if the report could not be written
+     */
+    File report(Report report, File outputDirectory) throws IOException;
+}
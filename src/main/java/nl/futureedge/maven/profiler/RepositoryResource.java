@@ -0,0 +1,95 @@
+package nl.futureedge.maven.profiler;
+
+/**
+ * Artifact or metadata in a repository, as given by a repository event.
+ */
+final class RepositoryResource {
+
+    /**
+     * Type of repository.
+     */
+    enum Origin {
+        /** Local repository. */
+        LOCAL,
+        /** Reactor (workspace). */
+        WORKSPACE,
+        /** Remote repository. */
+        REMOTE,
+        /** Not known (for example: not resolved). */
+        NONE;
+
+        /**
+         * Determine the type of repository.
+         * @param repository repository (org.eclipse.aether.repository.ArtifactRepository)
+         * @return origin
+         */
+        static Origin of(final Object repository) {
+            if (repository == null) {
+                return NONE;
+            }
+            switch (repository.getClass().getName()) {
+                case "org.eclipse.aether.repository.LocalRepository":
+                    return LOCAL;
+                case "org.eclipse.aether.repository.WorkspaceRepository":
+                    return WORKSPACE;
+                default:
+                    return REMOTE;
+            }
+        }
+    }
+
+    private final String name;
+    private final String repository;
+    private final Origin origin;
+    private final long size;
+    private final boolean failed;
+    private final boolean snapshot;
+
+    /**
+     * Constructor.
+     * @param name artifact (groupId:artifactId:extension[:classifier]:version) or metadata
+     * @param repository repository id
+     * @param origin type of repository
+     * @param size size of the file in bytes (-1 if unknown)
+     * @param failed true, if the repository event reported an exception
+     * @param snapshot true, if the resource is snapshot metadata
+     */
+    RepositoryResource(final String name, final String repository, final Origin origin, final long size, final boolean failed,
+                       final boolean snapshot) {
+        this.name = name;
+        this.repository = repository;
+        this.origin = origin;
+        this.size = size;
+        this.failed = failed;
+        this.snapshot = snapshot;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getRepository() {
+        return repository;
+    }
+
+    Origin getOrigin() {
+        return origin;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    boolean isSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + repository + ")";
+    }
+}
@@ -0,0 +1,201 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Efficiency of the resolver: where artifacts are resolved from (local repository, reactor or remote repository) and
+ * the time spent on (remote) metadata.
+ */
+final class ResolverStatistics {
+
+    private final AtomicLong resolutions = new AtomicLong();
+    private final AtomicLong resolutionTime = new AtomicLong();
+    private final AtomicLong local = new AtomicLong();
+    private final AtomicLong workspace = new AtomicLong();
+    private final AtomicLong remote = new AtomicLong();
+    private final AtomicLong unresolved = new AtomicLong();
+    private final SortedMap<String, Repository> repositories = new ConcurrentSkipListMap<>();
+
+    /**
+     * Record an artifact resolution.
+     * @param resource artifact and the repository it was resolved from
+     * @param duration duration in nanoseconds
+     */
+    void artifactResolved(final RepositoryResource resource, final long duration) {
+        resolutions.incrementAndGet();
+        resolutionTime.addAndGet(duration);
+        if (resource.isFailed()) {
+            unresolved.incrementAndGet();
+            return;
+        }
+        switch (resource.getOrigin()) {
+            case LOCAL:
+                local.incrementAndGet();
+                break;
+            case WORKSPACE:
+                workspace.incrementAndGet();
+                break;
+            case REMOTE:
+                remote.incrementAndGet();
+                break;
+            default:
+                unresolved.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a metadata resolution (check if the metadata is up to date, possibly followed by a download).
+     * @param resource metadata and repository
+     * @param duration duration in nanoseconds
+     */
+    void metadataResolved(final RepositoryResource resource, final long duration) {
+        final Repository repository = repository(resource);
+        repository.checks.incrementAndGet();
+        repository.checkTime.addAndGet(duration);
+    }
+
+    /**
+     * Record a metadata download (a round trip to the remote repository).
+     * @param resource metadata and repository
+     * @param duration duration in nanoseconds
+     */
+    void metadataDownloaded(final RepositoryResource resource, final long duration) {
+        final Repository repository = repository(resource);
+        repository.downloads.incrementAndGet();
+        repository.downloadTime.addAndGet(duration);
+        if (resource.isSnapshot()) {
+            repository.snapshotDownloads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record invalid metadata.
+     * @param resource metadata and repository
+     */
+    void metadataInvalid(final RepositoryResource resource) {
+        repository(resource).invalid.incrementAndGet();
+    }
+
+    private Repository repository(final RepositoryResource resource) {
+        return repositories.computeIfAbsent(String.valueOf(resource.getRepository()), Repository::new);
+    }
+
+    boolean isEmpty() {
+        return resolutions.get() == 0 && repositories.isEmpty();
+    }
+
+    long getResolutions() {
+        return resolutions.get();
+    }
+
+    /**
+     * @return cumulative time spent resolving artifacts in nanoseconds
+     */
+    long getResolutionTime() {
+        return resolutionTime.get();
+    }
+
+    /**
+     * @return number of artifacts resolved from the local repository
+     */
+    long getLocal() {
+        return local.get();
+    }
+
+    /**
+     * @return number of artifacts resolved from the reactor
+     */
+    long getWorkspace() {
+        return workspace.get();
+    }
+
+    /**
+     * @return number of artifacts resolved from (downloaded from) a remote repository
+     */
+    long getRemote() {
+        return remote.get();
+    }
+
+    /**
+     * @return number of artifacts that could not be resolved
+     */
+    long getUnresolved() {
+        return unresolved.get();
+    }
+
+    /**
+     * @return ratio (0-1) of artifacts that were found in the local repository (of the artifacts that were not resolved
+     * from the reactor)
+     */
+    double getLocalHitRatio() {
+        final long total = getLocal() + getRemote();
+        return total == 0 ? 0 : (double) getLocal() / total;
+    }
+
+    /**
+     * @return cumulative time spent resolving metadata (over all repositories) in nanoseconds
+     */
+    long getMetadataTime() {
+        long result = 0;
+        for (final Repository repository : repositories.values()) {
+            result += repository.getCheckTime();
+        }
+        return result;
+    }
+
+    /**
+     * @return metadata statistics per repository (sorted on repository id)
+     */
+    List<Repository> getRepositories() {
+        return new ArrayList<>(repositories.values());
+    }
+
+    /**
+     * Metadata statistics of a repository.
+     */
+    static final class Repository {
+        private final String id;
+        private final AtomicLong checks = new AtomicLong();
+        private final AtomicLong checkTime = new AtomicLong();
+        private final AtomicLong downloads = new AtomicLong();
+        private final AtomicLong downloadTime = new AtomicLong();
+        private final AtomicLong snapshotDownloads = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+
+        Repository(final String id) {
+            this.id = id;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        long getChecks() {
+            return checks.get();
+        }
+
+        long getCheckTime() {
+            return checkTime.get();
+        }
+
+        long getDownloads() {
+            return downloads.get();
+        }
+
+        long getDownloadTime() {
+            return downloadTime.get();
+        }
+
+        long getSnapshotDownloads() {
+            return snapshotDownloads.get();
+        }
+
+        long getInvalid() {
+            return invalid.get();
+        }
+    }
+}
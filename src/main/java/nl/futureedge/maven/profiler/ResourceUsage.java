@@ -0,0 +1,223 @@
+package nl.futureedge.maven.profiler;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CPU time, allocated bytes and garbage collections per mojo.
+ *
+ * <p>
+ * CPU time and allocated bytes are measured for the thread that executes the mojo (threads started by the mojo are not
+ * included). Garbage collections are counted for the whole JVM: collections during the execution of a mojo are attributed
+ * to that mojo, and to every other mojo that was running at the same time.
+ * </p>
+ */
+final class ResourceUsage {
+
+    private static final Comparator<Mojo> SLOWEST_FIRST =
+            Comparator.comparingLong(Mojo::getWall).reversed().thenComparing(Mojo::getName);
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Allocations allocations;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final boolean cpuTime;
+    private final ConcurrentMap<String, Mojo> mojos = new ConcurrentHashMap<>();
+
+    ResourceUsage() {
+        cpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        allocations = createAllocations(threads);
+    }
+
+    private static Allocations createAllocations(final ThreadMXBean threads) {
+        try {
+            return SunAllocations.create(threads);
+        } catch (final LinkageError e) {
+            // JVM without com.sun.management; allocations are not supported
+            return null;
+        }
+    }
+
+    /**
+     * @return true, if the CPU time of threads can be measured
+     */
+    boolean isCpuTimeSupported() {
+        return cpuTime;
+    }
+
+    /**
+     * @return true, if the bytes allocated by threads can be measured
+     */
+    boolean isAllocationSupported() {
+        return allocations != null;
+    }
+
+    /**
+     * Capture the resources used so far by the current thread (and the garbage collections of the JVM).
+     * @return snapshot
+     */
+    Snapshot snapshot() {
+        long gcCount = 0;
+        long gcTime = 0;
+        for (final GarbageCollectorMXBean collector : collectors) {
+            // -1 if undefined for this collector
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcTime += Math.max(0, collector.getCollectionTime());
+        }
+        return new Snapshot(cpuTime ? threads.getCurrentThreadCpuTime() : 0,
+                allocations == null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId()),
+                gcCount, TimeUnit.MILLISECONDS.toNanos(gcTime));
+    }
+
+    /**
+     * Record the resources used by a mojo execution.
+     * @param mojo mojo identifier
+     * @param wall duration (in nanoseconds)
+     * @param start snapshot at the start of the mojo (on the thread executing the mojo)
+     * @param end snapshot at the end of the mojo (on the thread executing the mojo)
+     */
+    void record(final String mojo, final long wall, final Snapshot start, final Snapshot end) {
+        final Mojo result = mojos.computeIfAbsent(mojo, Mojo::new);
+        result.count.increment();
+        result.wall.add(wall);
+        result.cpu.add(Math.max(0, end.cpu - start.cpu));
+        result.allocated.add(Math.max(0, end.allocated - start.allocated));
+        result.gcCount.add(Math.max(0, end.gcCount - start.gcCount));
+        result.gcTime.add(Math.max(0, end.gcTime - start.gcTime));
+    }
+
+    boolean isEmpty() {
+        return mojos.isEmpty();
+    }
+
+    /**
+     * @return resources used per mojo, slowest (highest duration) first
+     */
+    List<Mojo> getMojos() {
+        final List<Mojo> result = new ArrayList<>(mojos.values());
+        result.sort(SLOWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Measures the bytes allocated by a thread.
+     */
+    @FunctionalInterface
+    private interface Allocations {
+        long getThreadAllocatedBytes(long threadId);
+    }
+
+    /**
+     * Only loaded (and linked against {@code com.sun.management}) when allocations are measured, so a JVM without
+     * {@code com.sun.management} only loses the allocation measurement.
+     */
+    private static final class SunAllocations {
+
+        private SunAllocations() {
+        }
+
+        /**
+         * @return allocation measurement, or null if not supported or not enabled
+         */
+        static Allocations create(final ThreadMXBean threads) {
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+                return ((com.sun.management.ThreadMXBean) threads)::getThreadAllocatedBytes;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Resources used by a thread (and the garbage collections of the JVM) up to a point in time.
+     */
+    static final class Snapshot {
+        private final long cpu;
+        private final long allocated;
+        private final long gcCount;
+        private final long gcTime;
+
+        Snapshot(final long cpu, final long allocated, final long gcCount, final long gcTime) {
+            this.cpu = cpu;
+            this.allocated = allocated;
+            this.gcCount = gcCount;
+            this.gcTime = gcTime;
+        }
+    }
+
+    /**
+     * Resources used by the executions of a mojo.
+     */
+    static final class Mojo {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder wall = new LongAdder();
+        private final LongAdder cpu = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final LongAdder gcCount = new LongAdder();
+        private final LongAdder gcTime = new LongAdder();
+
+        Mojo(final String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return cumulative duration in nanoseconds
+         */
+        long getWall() {
+            return wall.sum();
+        }
+
+        /**
+         * @return cumulative CPU time of the mojo thread in nanoseconds
+         */
+        long getCpu() {
+            return cpu.sum();
+        }
+
+        /**
+         * @return CPU time as fraction of the duration (1.0 is CPU bound; low values mean waiting on I/O, locks or other threads)
+         */
+        double getCpuRatio() {
+            final long duration = getWall();
+            return duration == 0 ? 0 : getCpu() / (double) duration;
+        }
+
+        /**
+         * @return bytes allocated by the mojo thread
+         */
+        long getAllocated() {
+            return allocated.sum();
+        }
+
+        /**
+         * @return number of garbage collections during the executions
+         */
+        long getGcCount() {
+            return gcCount.sum();
+        }
+
+        /**
+         * @return cumulative time (in nanoseconds) of the garbage collections during the executions
+         */
+        long getGcTime() {
+            return gcTime.sum();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact (gzipped binary) data file of a single build, that can be merged with the data files of other builds (for
+ * example the shards of a reactor built on several CI nodes, see {@link Merge}).
+ *
+ * <p>
+ * The file contains the node and commit of the build, the aggregates and histogram per execution identifier, and the
+ * totals per mojo per module. Only the non-empty buckets of a histogram are written.
+ * </p>
+ */
+final class RunData {
+
+    /**
+     * "MTD" and the version of the format.
+     */
+    private static final int MAGIC = 0x4d544401;
+
+    private RunData() {
+    }
+
+    /**
+     * Write a data file.
+     * @param file file
+     * @param timestamp start of the build (milliseconds since the epoch)
+     * @param node node that ran the build
+     * @param commit git commit of the build (can be null)
+     * @param executions execution statistics
+     * @param modules module statistics
+     * @throws IOException if the file could not be written
+     */
+    static void write(final File file, final long timestamp, final String node, final String commit, final ExecutionStatistics executions,
+                      final ModuleMatrix modules) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file.toPath()))))) {
+            output.writeInt(MAGIC);
+            output.writeLong(timestamp);
+            output.writeUTF(node == null ? "" : node);
+            output.writeUTF(commit == null ? "" : commit);
+
+            final List<ExecutionStatistics.Execution> executionTotals = executions.getExecutions();
+            output.writeInt(executionTotals.size());
+            for (final ExecutionStatistics.Execution execution : executionTotals) {
+                output.writeUTF(execution.getIdentifier());
+                output.writeLong(execution.getCount());
+                output.writeLong(execution.getTotal());
+                output.writeLong(execution.getMin());
+                output.writeLong(execution.getMax());
+                execution.getHistogram().write(output);
+            }
+
+            final List<ModuleMatrix.Totals> moduleTotals = modules.getSlowestModules(Integer.MAX_VALUE);
+            output.writeInt(moduleTotals.size());
+            for (final ModuleMatrix.Totals module : moduleTotals) {
+                output.writeUTF(module.getName());
+                final List<ModuleMatrix.Totals> mojos = modules.getSlowestMojos(module.getName(), Integer.MAX_VALUE);
+                output.writeInt(mojos.size());
+                for (final ModuleMatrix.Totals mojo : mojos) {
+                    output.writeUTF(mojo.getName());
+                    output.writeLong(mojo.getCount());
+                    output.writeLong(mojo.getTotal());
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a data file, passing its contents to a visitor as they are read (the file is not kept in memory).
+     * @param file file
+     * @param visitor visitor
+     * @throws IOException if the file could not be read (or is not a data file)
+     */
+    static void read(final File file, final Visitor visitor) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a mojo-timer data file (or an unsupported version): " + file);
+            }
+            final long timestamp = input.readLong();
+            final String node = input.readUTF();
+            final String commit = input.readUTF();
+            visitor.run(timestamp, node, commit.isEmpty() ? null : commit);
+
+            final int executions = input.readInt();
+            for (int execution = 0; execution < executions; execution++) {
+                final String identifier = input.readUTF();
+                final long count = input.readLong();
+                final long total = input.readLong();
+                final long min = input.readLong();
+                final long max = input.readLong();
+                final Histogram histogram = new Histogram();
+                histogram.read(input);
+                visitor.execution(identifier, count, total, min, max, histogram);
+            }
+
+            final int modules = input.readInt();
+            for (int module = 0; module < modules; module++) {
+                final String name = input.readUTF();
+                final int mojos = input.readInt();
+                for (int mojo = 0; mojo < mojos; mojo++) {
+                    visitor.module(name, input.readUTF(), input.readLong(), input.readLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the contents of a data file.
+     */
+    interface Visitor {
+        /**
+         * @param timestamp start of the build (milliseconds since the epoch)
+         * @param node node that ran the build
+         * @param commit git commit of the build (can be null)
+         */
+        void run(long timestamp, String node, String commit);
+
+        /**
+         * @param identifier execution identifier
+         * @param count number of executions
+         * @param total total duration (in nanoseconds)
+         * @param min minimum duration (in nanoseconds)
+         * @param max maximum duration (in nanoseconds)
+         * @param histogram histogram of the durations
+         */
+        void execution(String identifier, long count, long total, long min, long max, Histogram histogram);
+
+        /**
+         * @param module module
+         * @param mojo mojo identifier
+         * @param count number of executions of the mojo in the module
+         * @param total total duration (in nanoseconds)
+         */
+        void module(String module, String mojo, long count, long total);
+    }
+}
@@ -0,0 +1,228 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples the stacks of the threads executing mojos, and writes the samples per mojo in the collapsed stack format
+ * ({@code frame;frame;frame count}, root frame first) that flame graph tools (for example FlameGraph, speedscope or
+ * async-profiler's converter) can render.
+ *
+ * <p>
+ * A single daemon thread takes the stacks of all mojo threads at once (one safepoint per sample, however many mojos are
+ * running). Samples are taken regardless of the state of the thread, so time a mojo spends waiting (on I/O or a forked
+ * process) shows up too. The overhead is bounded: when taking a sample takes longer than {@value #OVERHEAD_PERCENTAGE}%
+ * of the interval, the next sample is delayed accordingly.
+ * </p>
+ */
+final class StackSampler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StackSampler.class.getName());
+
+    /**
+     * Maximum percentage of (one thread's) time spent taking samples.
+     */
+    private static final int OVERHEAD_PERCENTAGE = 2;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final ConcurrentMap<String, Running> running = new ConcurrentHashMap<>();
+    private final long interval;
+    private final int depth;
+
+    // Only accessed by the sampling thread (and after it has been stopped)
+    private final Map<String, Map<String, long[]>> stacks = new HashMap<>();
+    private long samples;
+    private long samplingTime;
+
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * Constructor.
+     * @param interval interval (in nanoseconds) between samples
+     * @param depth maximum number of frames per stack (the frames closest to the root are dropped)
+     */
+    StackSampler(final long interval, final int depth) {
+        this.interval = interval;
+        this.depth = depth;
+    }
+
+    /**
+     * Start sampling (on a daemon thread).
+     */
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mojo-timer-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.schedule(this::sampleAndReschedule, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop sampling; waits for a sample in progress.
+     */
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    LOGGER.debug("Sampler did not stop in time");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Record the start of a mojo.
+     * @param key key of the mojo execution
+     * @param mojo mojo identifier
+     * @param thread thread executing the mojo
+     * @param start start time (in nanoseconds)
+     */
+    void started(final String key, final String mojo, final Thread thread, final long start) {
+        running.put(key, new Running(mojo, thread.getId(), start));
+    }
+
+    /**
+     * Record the end of a mojo.
+     * @param key key of the mojo execution
+     */
+    void finished(final String key) {
+        running.remove(key);
+    }
+
+    private void sampleAndReschedule() {
+        final long start = System.nanoTime();
+        try {
+            sample();
+        } catch (final RuntimeException e) {
+            // An exception would stop the sampling
+            LOGGER.debug("Sampling failed", e);
+        }
+        final long elapsed = System.nanoTime() - start;
+        samplingTime += elapsed;
+        final ScheduledExecutorService current = executor;
+        if (current != null && !current.isShutdown()) {
+            current.schedule(this::sampleAndReschedule, Math.max(interval, elapsed * (100 / OVERHEAD_PERCENTAGE)), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Take one sample of the stacks of all threads executing a mojo.
+     */
+    void sample() {
+        if (running.isEmpty()) {
+            return;
+        }
+        // The last started mojo on a thread is the one executing (a forking mojo waits for its forked mojos)
+        final Map<Long, Running> mojos = new HashMap<>();
+        for (final Running mojo : running.values()) {
+            mojos.merge(mojo.threadId, mojo, (first, second) -> first.start >= second.start ? first : second);
+        }
+        final long[] threadIds = new long[mojos.size()];
+        int index = 0;
+        for (final Long threadId : mojos.keySet()) {
+            threadIds[index++] = threadId;
+        }
+
+        samples++;
+        for (final ThreadInfo info : threads.getThreadInfo(threadIds, depth)) {
+            if (info == null || info.getStackTrace().length == 0) {
+                // Thread no longer alive
+                continue;
+            }
+            stacks.computeIfAbsent(mojos.get(info.getThreadId()).mojo, mojo -> new HashMap<>())
+                    .computeIfAbsent(collapse(info.getStackTrace()), stack -> new long[1])[0]++;
+        }
+    }
+
+    /**
+     * @param stackTrace stack trace (top frame first)
+     * @return collapsed stack (root frame first, separated by semicolons)
+     */
+    static String collapse(final StackTraceElement[] stackTrace) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            if (result.length() > 0) {
+                result.append(';');
+            }
+            // Semicolons and spaces separate frames and the count
+            result.append((stackTrace[i].getClassName() + '.' + stackTrace[i].getMethodName()).replace(';', ':').replace(' ', '_'));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return number of samples taken
+     */
+    long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return time (in nanoseconds) spent taking samples
+     */
+    long getSamplingTime() {
+        return samplingTime;
+    }
+
+    /**
+     * Write a collapsed stack file per sampled mojo; only valid when stopped.
+     * @param directory directory to write the files to
+     * @return files written
+     * @throws IOException when a file could not be written
+     */
+    List<File> write(final File directory) throws IOException {
+        final List<File> result = new ArrayList<>();
+        if (stacks.isEmpty()) {
+            return result;
+        }
+        Files.createDirectories(directory.toPath());
+        for (final Map.Entry<String, Map<String, long[]>> mojo : stacks.entrySet()) {
+            final File file = new File(directory, mojo.getKey().replaceAll("[^A-Za-z0-9._-]", "_") + ".collapsed");
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                for (final Map.Entry<String, long[]> stack : new TreeMap<>(mojo.getValue()).entrySet()) {
+                    writer.write(stack.getKey() + ' ' + stack.getValue()[0] + '\n');
+                }
+            }
+            result.add(file);
+        }
+        return result;
+    }
+
+    /**
+     * Running mojo.
+     */
+    private static final class Running {
+        private final String mojo;
+        private final long threadId;
+        private final long start;
+
+        Running(final String mojo, final long threadId, final long start) {
+            this.mojo = mojo;
+            this.threadId = threadId;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Artifact transfers (downloads or deployments) per repository, and the slowest transfers.
+ */
+final class TransferStatistics {
+
+    private static final Comparator<Transfer> FASTEST_FIRST = Comparator.comparingLong(Transfer::getDuration);
+
+    private final int top;
+    private final SortedMap<String, Repository> repositories = new ConcurrentSkipListMap<>();
+    private final PriorityQueue<Transfer> slowest = new PriorityQueue<>(FASTEST_FIRST);
+
+    /**
+     * Constructor.
+     * @param top number of slowest transfers to keep
+     */
+    TransferStatistics(final int top) {
+        this.top = top;
+    }
+
+    /**
+     * Record a transfer.
+     * @param resource transferred artifact
+     * @param start start time in nanoseconds
+     * @param end end time in nanoseconds
+     */
+    void record(final RepositoryResource resource, final long start, final long end) {
+        final long duration = end - start;
+        final Repository repository = repositories.computeIfAbsent(String.valueOf(resource.getRepository()), Repository::new);
+        if (resource.isFailed()) {
+            repository.failed.incrementAndGet();
+            return;
+        }
+        repository.count.incrementAndGet();
+        repository.duration.addAndGet(duration);
+        repository.busy(start, end);
+        if (resource.getSize() > 0) {
+            repository.bytes.addAndGet(resource.getSize());
+        }
+
+        if (top > 0) {
+            synchronized (slowest) {
+                if (slowest.size() < top) {
+                    slowest.add(new Transfer(resource, duration));
+                } else if (slowest.peek().getDuration() < duration) {
+                    slowest.poll();
+                    slowest.add(new Transfer(resource, duration));
+                }
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return repositories.isEmpty();
+    }
+
+    /**
+     * @return statistics per repository (sorted on repository id)
+     */
+    List<Repository> getRepositories() {
+        return new ArrayList<>(repositories.values());
+    }
+
+    /**
+     * @return slowest transfers, slowest first
+     */
+    List<Transfer> getSlowest() {
+        final List<Transfer> result;
+        synchronized (slowest) {
+            result = new ArrayList<>(slowest);
+        }
+        result.sort(FASTEST_FIRST.reversed());
+        return result;
+    }
+
+    /**
+     * Transfers from or to a repository.
+     */
+    static final class Repository {
+        private final String id;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong duration = new AtomicLong();
+        /**
+         * Disjoint intervals (start to end) in which at least one transfer was in progress.
+         */
+        private final TreeMap<Long, Long> intervals = new TreeMap<>();
+
+        Repository(final String id) {
+            this.id = id;
+        }
+
+        private synchronized void busy(final long start, final long end) {
+            long mergedStart = start;
+            long mergedEnd = end;
+            // Merge with the overlapping intervals (at most one starts before the new interval)
+            final Map.Entry<Long, Long> before = intervals.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                mergedStart = before.getKey();
+                mergedEnd = Math.max(mergedEnd, before.getValue());
+                intervals.remove(before.getKey());
+            }
+            for (Map.Entry<Long, Long> overlapping = intervals.ceilingEntry(mergedStart);
+                 overlapping != null && overlapping.getKey() <= mergedEnd; overlapping = intervals.ceilingEntry(mergedStart)) {
+                mergedEnd = Math.max(mergedEnd, overlapping.getValue());
+                intervals.remove(overlapping.getKey());
+            }
+            intervals.put(mergedStart, mergedEnd);
+        }
+
+        String getId() {
+            return id;
+        }
+
+        /**
+         * @return number of successful transfers
+         */
+        long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return number of failed transfers (for example artifacts not found in the repository)
+         */
+        long getFailed() {
+            return failed.get();
+        }
+
+        long getBytes() {
+            return bytes.get();
+        }
+
+        /**
+         * @return cumulative duration of the successful transfers in nanoseconds
+         */
+        long getDuration() {
+            return duration.get();
+        }
+
+        /**
+         * @return wall clock time in nanoseconds during which at least one successful transfer was in progress (parallel
+         * transfers overlap, so this is at most the cumulative duration)
+         */
+        synchronized long getBusyTime() {
+            long result = 0;
+            for (final Map.Entry<Long, Long> interval : intervals.entrySet()) {
+                result += interval.getValue() - interval.getKey();
+            }
+            return result;
+        }
+
+        /**
+         * @return throughput of the successful transfers in megabytes per second, over the wall clock time during which
+         * transfers were in progress
+         */
+        double getThroughput() {
+            final long nanos = getBusyTime();
+            return nanos == 0 ? 0 : (getBytes() / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0);
+        }
+    }
+
+    /**
+     * Single transfer.
+     */
+    static final class Transfer {
+        private final RepositoryResource resource;
+        private final long duration;
+
+        Transfer(final RepositoryResource resource, final long duration) {
+            this.resource = resource;
+            this.duration = duration;
+        }
+
+        RepositoryResource getResource() {
+            return resource;
+        }
+
+        long getDuration() {
+            return duration;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the running mojos; periodically writes a snapshot of them, and writes a thread dump when a mojo runs
+ * longer than its budget.
+ *
+ * <p>
+ * The budget of a mojo is a multiple of its median duration in previous builds (see {@link BuildHistory}), or of the
+ * configured budget when the mojo has no history. Only one thread dump is written per mojo execution.
+ * </p>
+ */
+final class Watchdog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Watchdog.class.getName());
+
+    private final ConcurrentMap<String, Running> running = new ConcurrentHashMap<>();
+    private final Map<String, Long> baseline;
+    private final long budget;
+    private final double multiple;
+    private final long minimum;
+    private final long interval;
+    private final File statusFile;
+    private final File dumpDirectory;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor.
+     * @param baseline median duration (in nanoseconds) per mojo in previous builds
+     * @param budget budget (in nanoseconds) of mojos without history
+     * @param multiple multiple of the budget after which a thread dump is written
+     * @param minimum minimum duration (in nanoseconds) before a mojo is considered hanging (the history of fast mojos is
+     * too small to multiply)
+     * @param interval interval (in nanoseconds) between snapshots
+     * @param statusFile file to write the snapshots to
+     * @param dumpDirectory directory to write the thread dumps to
+     */
+    Watchdog(final Map<String, Long> baseline, final long budget, final double multiple, final long minimum,
+             final long interval, final File statusFile, final File dumpDirectory) {
+        this.baseline = baseline;
+        this.budget = budget;
+        this.multiple = multiple;
+        this.minimum = minimum;
+        this.interval = interval;
+        this.statusFile = statusFile;
+        this.dumpDirectory = dumpDirectory;
+    }
+
+    /**
+     * Start checking the running mojos (on a daemon thread).
+     */
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mojo-timer-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::checkSafely, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop checking the running mojos.
+     */
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (statusFile != null && statusFile.isFile() && !statusFile.delete()) {
+            LOGGER.debug("Could not delete status file {}", statusFile);
+        }
+    }
+
+    /**
+     * Record the start of a mojo.
+     * @param key key of the mojo execution
+     * @param mojo mojo identifier
+     * @param project project (can be null)
+     * @param thread thread executing the mojo
+     * @param start start time (in nanoseconds)
+     */
+    void started(final String key, final String mojo, final String project, final Thread thread, final long start) {
+        running.put(key, new Running(mojo, project, thread, start));
+    }
+
+    /**
+     * Record the end of a mojo.
+     * @param key key of the mojo execution
+     */
+    void finished(final String key) {
+        running.remove(key);
+    }
+
+    private void checkSafely() {
+        try {
+            check(System.nanoTime());
+        } catch (final RuntimeException e) {
+            // An exception would stop the scheduled executor
+            LOGGER.warn("Watchdog check failed", e);
+        }
+    }
+
+    /**
+     * Write a snapshot of the running mojos and a thread dump for every mojo past its budget.
+     * @param now current time (in nanoseconds)
+     * @return running mojos, longest running first
+     */
+    List<Running> check(final long now) {
+        final List<Running> snapshot = new ArrayList<>(running.values());
+        snapshot.sort(Comparator.comparingLong(Running::getStart));
+
+        final List<String> lines = new ArrayList<>();
+        lines.add(String.format("Running mojos at %1$tF %1$tT:", new Date()));
+        for (final Running mojo : snapshot) {
+            final long elapsed = now - mojo.getStart();
+            final String line = String.format("[%1$s] budget: %2$s - %3$s (%4$s) on %5$s", Durations.format(elapsed,
+                    Durations.Resolution.SECONDS), Durations.format(getLimit(mojo.getMojo()), Durations.Resolution.SECONDS), mojo.getMojo(),
+                    mojo.getProject(), mojo.getThread().getName());
+            lines.add(line);
+            if (elapsed >= interval) {
+                LOGGER.info("Still running: {}", line);
+            }
+            if (elapsed > getLimit(mojo.getMojo()) && !mojo.dumped) {
+                mojo.dumped = true;
+                dump(mojo, elapsed);
+            }
+        }
+        writeStatus(lines);
+        return snapshot;
+    }
+
+    /**
+     * @param mojo mojo identifier
+     * @return time (in nanoseconds) after which the mojo is considered hanging
+     */
+    long getLimit(final String mojo) {
+        final Long median = baseline.get(mojo);
+        return Math.max(minimum, (long) (multiple * (median == null ? budget : median)));
+    }
+
+    private void writeStatus(final List<String> lines) {
+        if (statusFile == null) {
+            return;
+        }
+        try {
+            final File directory = statusFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            // Replace the file at once, so a reader never sees a partial snapshot
+            final File temporary = new File(directory, statusFile.getName() + ".tmp");
+            Files.write(temporary.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(temporary.toPath(), statusFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            LOGGER.debug("Could not write status file " + statusFile, e);
+        }
+    }
+
+    private void dump(final Running mojo, final long elapsed) {
+        final File file = new File(dumpDirectory, "mojo-timer-dump-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "-"
+                + mojo.getThread().getId() + ".txt");
+        final List<String> lines = new ArrayList<>();
+        lines.add(String.format("Mojo %1$s (%2$s) running for %3$s (budget: %4$s)", mojo.getMojo(), mojo.getProject(),
+                Durations.format(elapsed, Durations.Resolution.SECONDS).trim(),
+                Durations.format(getLimit(mojo.getMojo()), Durations.Resolution.SECONDS).trim()));
+        lines.add("");
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final List<ThreadInfo> infos = new ArrayList<>();
+        Collections.addAll(infos, threads.dumpAllThreads(threads.isObjectMonitorUsageSupported(), threads.isSynchronizerUsageSupported()));
+        // Thread of the mojo first
+        infos.sort(Comparator.comparing((ThreadInfo info) -> info.getThreadId() != mojo.getThread().getId()));
+        for (final ThreadInfo info : infos) {
+            format(lines, info);
+        }
+
+        try {
+            Files.createDirectories(dumpDirectory.toPath());
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+            LOGGER.warn("Mojo {} ({}) exceeded its budget; thread dump written to {}", mojo.getMojo(), mojo.getProject(), file);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write thread dump to " + file, e);
+        }
+    }
+
+    /**
+     * Format a thread like jstack does (without the depth limit of {@link ThreadInfo#toString()}).
+     */
+    private static void format(final List<String> lines, final ThreadInfo info) {
+        lines.add(String.format("\"%1$s\" #%2$d %3$s%4$s", info.getThreadName(), info.getThreadId(), info.getThreadState(),
+                info.getLockName() == null ? "" : " on " + info.getLockName()
+                        + (info.getLockOwnerName() == null ? "" : " owned by \"" + info.getLockOwnerName() + "\" #" + info.getLockOwnerId())));
+        final StackTraceElement[] stackTrace = info.getStackTrace();
+        for (int depth = 0; depth < stackTrace.length; depth++) {
+            lines.add("\tat " + stackTrace[depth]);
+            for (final MonitorInfo monitor : info.getLockedMonitors()) {
+                if (monitor.getLockedStackDepth() == depth) {
+                    lines.add("\t- locked " + monitor);
+                }
+            }
+        }
+        final LockInfo[] synchronizers = info.getLockedSynchronizers();
+        if (synchronizers.length > 0) {
+            lines.add("\tLocked synchronizers:");
+            for (final LockInfo synchronizer : synchronizers) {
+                lines.add("\t- " + synchronizer);
+            }
+        }
+        lines.add("");
+    }
+
+    /**
+     * Running mojo.
+     */
+    static final class Running {
+        private final String mojo;
+        private final String project;
+        private final Thread thread;
+        private final long start;
+        private volatile boolean dumped;
+
+        Running(final String mojo, final String project, final Thread thread, final long start) {
+            this.mojo = mojo;
+            this.project = project;
+            this.thread = thread;
+            this.start = start;
+        }
+
+        String getMojo() {
+            return mojo;
+        }
+
+        String getProject() {
+            return project;
+        }
+
+        Thread getThread() {
+            return thread;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        boolean isDumped() {
+            return dumped;
+        }
+    }
+}
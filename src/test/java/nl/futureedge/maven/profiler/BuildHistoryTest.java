@@ -0,0 +1,142 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildHistoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testStore() throws IOException {
+        File directory = new File(temporaryFolder.getRoot(), ".mvn/mojo-timer/history");
+        BuildHistory subject = new BuildHistory(directory);
+        Assert.assertTrue(subject.readRecent(10).isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            BuildHistory.Run run = new BuildHistory.Run(1000L + i, i == 0 ? null : "commit" + i);
+            run.addExecution("group:artifact:compile@default-compile", 2, 100L * (i + 1));
+            if (i >= 3) {
+                run.addExecution("group:artifact:test@default-test", 1, 50L);
+            }
+            run.addModule("group:module", 3, 150L * (i + 1));
+            subject.append(run);
+        }
+
+        List<BuildHistory.Run> runs = subject.readRecent(3);
+        Assert.assertEquals(3, runs.size());
+        Assert.assertEquals(1002L, runs.get(0).getTimestamp());
+        Assert.assertEquals("commit2", runs.get(0).getCommit());
+        Assert.assertEquals(1004L, runs.get(2).getTimestamp());
+        Assert.assertEquals(2L, runs.get(2).getExecutions().get("group:artifact:compile@default-compile").getCount());
+        Assert.assertEquals(500L, runs.get(2).getExecutions().get("group:artifact:compile@default-compile").getTotal());
+        Assert.assertEquals(50L, runs.get(2).getExecutions().get("group:artifact:test@default-test").getTotal());
+        Assert.assertEquals(750L, runs.get(2).getModules().get("group:module").getTotal());
+        Assert.assertFalse(runs.get(0).getExecutions().containsKey("group:artifact:test@default-test"));
+
+        Assert.assertNull(subject.readRecent(10).get(0).getCommit());
+        Assert.assertEquals(3, Files.readAllLines(new File(directory, "identifiers.txt").toPath()).size());
+
+        // Partially written index entry (interrupted build) is ignored, and overwritten by the next build
+        try (RandomAccessFile index = new RandomAccessFile(new File(directory, "runs.idx"), "rw")) {
+            index.seek(index.length());
+            index.write(new byte[]{1, 2, 3});
+        }
+        Assert.assertEquals(5, subject.readRecent(10).size());
+        subject.append(new BuildHistory.Run(1005L, null));
+        Assert.assertEquals(6, subject.readRecent(10).size());
+        Assert.assertEquals(1005L, subject.readRecent(1).get(0).getTimestamp());
+    }
+
+    @Test
+    public void testTornIdentifiers() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        BuildHistory subject = new BuildHistory(directory);
+        BuildHistory.Run first = new BuildHistory.Run(1000L, null);
+        first.addExecution("group:artifact:compile@default-compile", 1, 100L);
+        subject.append(first);
+
+        // Identifier of an interrupted build, written without line separator
+        File identifiers = new File(directory, "identifiers.txt");
+        Files.write(identifiers.toPath(), "group:artifact:jar@defa".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        Assert.assertEquals(1, subject.readRecent(10).size());
+
+        BuildHistory.Run second = new BuildHistory.Run(1001L, null);
+        second.addExecution("group:artifact:jar@default-jar", 1, 50L);
+        subject.append(second);
+        Assert.assertEquals(Arrays.asList("group:artifact:compile@default-compile", "group:artifact:jar@default-jar"),
+                Files.readAllLines(identifiers.toPath(), StandardCharsets.UTF_8));
+        Assert.assertEquals(50L, subject.readRecent(1).get(0).getExecutions().get("group:artifact:jar@default-jar").getTotal());
+        Assert.assertEquals(2, BuildHistory.completeLength("a\nb".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testCompare() {
+        List<BuildHistory.Run> baseline = Arrays.asList(
+                run(100_000_000L, 1_000_000_000L),
+                run(120_000_000L, 1_100_000_000L),
+                run(110_000_000L, 900_000_000L));
+
+        Assert.assertEquals(Long.valueOf(110_000_000L), BuildHistory.medianAverages(baseline).get("group:artifact:compile@default-compile"));
+
+        // Within threshold
+        Assert.assertTrue(BuildHistory.compare(run(130_000_000L, 1_100_000_000L), baseline, 3, 0.2, 0L).isEmpty());
+
+        // Mojo 50% slower (on average per execution), module 100% slower
+        List<BuildHistory.Regression> regressions = BuildHistory.compare(run(165_000_000L, 2_000_000_000L), baseline, 3, 0.2, 0L);
+        Assert.assertEquals(2, regressions.size());
+        Assert.assertEquals("module", regressions.get(0).getKind());
+        Assert.assertEquals("group:module", regressions.get(0).getName());
+        Assert.assertEquals(1_000_000_000L, regressions.get(0).getBaseline());
+        Assert.assertEquals(1.0, regressions.get(0).getIncrease(), 0.0001);
+        Assert.assertEquals("mojo", regressions.get(1).getKind());
+        Assert.assertEquals(110_000_000L, regressions.get(1).getBaseline());
+        Assert.assertEquals(0.5, regressions.get(1).getIncrease(), 0.0001);
+
+        // Below the minimum increase
+        Assert.assertEquals(1, BuildHistory.compare(run(165_000_000L, 2_000_000_000L), baseline, 3, 0.2, 100_000_000L).size());
+
+        // Not enough history
+        Assert.assertTrue(BuildHistory.compare(run(165_000_000L, 2_000_000_000L), baseline.subList(0, 2), 3, 0.2, 0L).isEmpty());
+        Assert.assertTrue(BuildHistory.compare(run(165_000_000L, 2_000_000_000L), Collections.emptyList(), 0, 0.2, 0L).isEmpty());
+    }
+
+    @Test
+    public void testReadGitCommit() throws IOException {
+        File base = temporaryFolder.getRoot();
+        Assert.assertNull(BuildHistory.readGitCommit(base));
+
+        File git = temporaryFolder.newFolder(".git");
+        Files.write(new File(git, "HEAD").toPath(), "ref: refs/heads/main\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(git, "packed-refs").toPath(),
+                "# pack-refs with: peeled fully-peeled sorted\nabc123 refs/heads/main\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("abc123", BuildHistory.readGitCommit(base));
+
+        new File(git, "refs/heads").mkdirs();
+        Files.write(new File(git, "refs/heads/main").toPath(), "def456\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("def456", BuildHistory.readGitCommit(base));
+
+        Files.write(new File(git, "HEAD").toPath(), "0123456789abcdef\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("0123456789abcdef", BuildHistory.readGitCommit(base));
+    }
+
+    private static BuildHistory.Run run(long mojoAverage, long moduleTotal) {
+        BuildHistory.Run run = new BuildHistory.Run(0L, null);
+        run.addExecution("group:artifact:compile@default-compile", 2, 2 * mojoAverage);
+        run.addModule("group:module", 2, moduleTotal);
+        return run;
+    }
+}
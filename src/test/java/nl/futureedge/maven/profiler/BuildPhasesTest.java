@@ -0,0 +1,75 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BuildPhasesTest {
+
+    @Test
+    public void testEmpty() {
+        Assert.assertTrue(new BuildPhases().determine(new BuildTimeline()).isEmpty());
+    }
+
+    @Test
+    public void testPhases() {
+        BuildPhases subject = new BuildPhases();
+        subject.startup(500);
+        subject.mark(Event.EXECUTION, true, 1000);
+        subject.mark(Event.PROJECT_DISCOVERY, true, 1100);
+        subject.mark(Event.SESSION, true, 1400);
+        // Only the first start is used
+        subject.mark(Event.SESSION, true, 1450);
+        subject.mark(Event.SESSION, false, 2400);
+        subject.mark(Event.EXECUTION, false, 2420);
+        subject.mark("maven:settings-building", true, 1200);
+
+        BuildTimeline timeline = new BuildTimeline();
+        // Single thread: a (1400-1900) and b (1950-2350)
+        timeline.projectStarted("a", Collections.emptyList(), 1, 1400);
+        timeline.mojoFinished("a", "clean", 1410, 1500);
+        // Forked execution within compile
+        timeline.mojoFinished("a", "compile", 1520, 1800);
+        timeline.mojoFinished("a", "generate", 1550, 1600);
+        timeline.mojoFinished("a", "test", 1850, 1880);
+        timeline.projectFinished("a", 1900);
+        timeline.projectStarted("b", Collections.singletonList("a"), 1, 1950);
+        timeline.projectFinished("b", 2350);
+
+        List<BuildPhases.Phase> phases = subject.determine(timeline);
+        Assert.assertEquals(10, phases.size());
+        assertPhase("startup and extension loading", 500, false, phases.get(0));
+        assertPhase("repository session setup", 100, false, phases.get(1));
+        assertPhase("project discovery and model building", 300, false, phases.get(2));
+        assertPhase("session (wall clock)", 1000, false, phases.get(3));
+        assertPhase("mojos", 90 + 280 + 30, true, phases.get(4));
+        assertPhase("gaps between mojos", 20 + 50, true, phases.get(5));
+        assertPhase("project scheduling (before the first and after the last mojo)", 10 + 20 + 400, true, phases.get(6));
+        assertPhase("threads not building a project", 100, true, phases.get(7));
+        assertPhase("session end", 20, false, phases.get(8));
+        assertPhase("total", 500 + 1420, false, phases.get(9));
+
+        // The session adds up
+        long session = 0;
+        for (BuildPhases.Phase phase : phases) {
+            session += phase.isThreadTime() ? phase.getDuration() : 0;
+        }
+        Assert.assertEquals(phases.get(3).getDuration(), session);
+    }
+
+    @Test
+    public void testIncomplete() {
+        BuildPhases subject = new BuildPhases();
+        subject.mark(Event.EXECUTION, true, 1000);
+        subject.mark(Event.SESSION, true, 1400);
+
+        Assert.assertTrue(subject.determine(new BuildTimeline()).isEmpty());
+    }
+
+    private static void assertPhase(String name, long duration, boolean threadTime, BuildPhases.Phase phase) {
+        Assert.assertEquals(name, phase.getName());
+        Assert.assertEquals(duration, phase.getDuration());
+        Assert.assertEquals(threadTime, phase.isThreadTime());
+    }
+}
@@ -0,0 +1,71 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChromeTraceWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testTrace() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "target/trace.json");
+        ChromeTraceWriter subject = new ChromeTraceWriter(file, 1_000_000L);
+        Thread thread = Thread.currentThread();
+        subject.complete("group:artifact:goal@execution", Event.Category.MOJO, thread, 1_010_000L, 1_250_500L, "group:\"module\"", null);
+        subject.complete("maven:dependency-resolution", Event.Category.DEPENDENCY_RESOLUTION, thread, 1_000_000L, 1_005_000L, null, "detail");
+
+        // Streaming; every event is written (and ends the file) before close, in case the build is aborted
+        List<String> written = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(5, written.size());
+        Assert.assertTrue(written.get(4), written.get(4).startsWith("{\"name\":\"maven:dependency-resolution\"") && written.get(4).endsWith("}}"));
+
+        subject.close();
+        subject.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(6, lines.size());
+        Assert.assertEquals("[", lines.get(0));
+        Assert.assertEquals("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"maven\"}},", lines.get(1));
+        Assert.assertEquals("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getId() + ",\"args\":{\"name\":\""
+                + thread.getName() + "\"}},", lines.get(2));
+        Assert.assertEquals("{\"name\":\"group:artifact:goal@execution\",\"cat\":\"mojo\",\"ph\":\"X\",\"ts\":10,\"dur\":240,\"pid\":1,\"tid\":"
+                + thread.getId() + ",\"args\":{\"project\":\"group:\\\"module\\\"\",\"detail\":null}},", lines.get(3));
+        Assert.assertEquals("{\"name\":\"maven:dependency-resolution\",\"cat\":\"dependency_resolution\",\"ph\":\"X\",\"ts\":0,\"dur\":5,\"pid\":1,"
+                + "\"tid\":" + thread.getId() + ",\"args\":{\"project\":null,\"detail\":\"detail\"}}", lines.get(4));
+        Assert.assertEquals("]", lines.get(5));
+    }
+
+    @Test
+    public void testLocale() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            // Turkish lower case of "I" is a dotless i; Thai digits with the numbering system extension
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            File file = new File(temporaryFolder.getRoot(), "trace-tr.json");
+            ChromeTraceWriter subject = new ChromeTraceWriter(file, 0L);
+            subject.complete("maven:dependency-resolution", Event.Category.DEPENDENCY_RESOLUTION, Thread.currentThread(), 1_000_000L,
+                    2_000_000L, null, null);
+            subject.close();
+            Assert.assertTrue(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).get(3).contains("\"cat\":\"dependency_resolution\""));
+
+            Locale.setDefault(Locale.forLanguageTag("th-TH-u-nu-thai"));
+            file = new File(temporaryFolder.getRoot(), "trace-th.json");
+            subject = new ChromeTraceWriter(file, 0L);
+            subject.complete("maven:session", Event.Category.MAVEN, Thread.currentThread(), 1_000_000L, 2_000_000L, null, null);
+            subject.close();
+            Assert.assertTrue(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).get(3).contains("\"ts\":1000,\"dur\":1000,"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
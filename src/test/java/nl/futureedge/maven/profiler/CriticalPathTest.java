@@ -0,0 +1,66 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CriticalPathTest {
+
+    @Test
+    public void testEmpty() {
+        Assert.assertNull(CriticalPath.determine(new BuildTimeline()));
+    }
+
+    @Test
+    public void testCriticalPath() {
+        // a -> b -> d, a -> c (c finishes before d)
+        BuildTimeline timeline = new BuildTimeline();
+        timeline.projectStarted("a", Collections.emptyList(), 2, 0);
+        timeline.mojoFinished("a", "compile", 0, 80);
+        timeline.projectFinished("a", 100);
+        timeline.projectStarted("b", Collections.singletonList("a"), 2, 100);
+        timeline.projectStarted("c", Collections.singletonList("a"), 2, 110);
+        timeline.projectFinished("c", 150);
+        timeline.projectFinished("b", 300);
+        timeline.projectStarted("d", Arrays.asList("b", "c"), 2, 320);
+        timeline.projectFinished("d", 400);
+        // Unfinished projects are ignored
+        timeline.projectStarted("e", Collections.singletonList("a"), 2, 120);
+
+        CriticalPath criticalPath = CriticalPath.determine(timeline);
+        Assert.assertEquals(400L, criticalPath.getWallClock());
+        Assert.assertEquals(100L + 200L + 40L + 80L, criticalPath.getBusy());
+        Assert.assertEquals(2, criticalPath.getDegreeOfConcurrency());
+        Assert.assertEquals(1.05, criticalPath.getAverageThreadsBusy(), 0.001);
+        Assert.assertEquals(0.525, criticalPath.getThreadUtilisation(), 0.001);
+
+        List<CriticalPath.Step> steps = criticalPath.getSteps();
+        Assert.assertEquals(3, steps.size());
+        Assert.assertEquals("a", steps.get(0).getProject().getName());
+        Assert.assertEquals(0L, steps.get(0).getWaited());
+        Assert.assertEquals(1, steps.get(0).getProject().getMojos().size());
+        Assert.assertEquals("b", steps.get(1).getProject().getName());
+        Assert.assertEquals(0L, steps.get(1).getWaited());
+        Assert.assertEquals("d", steps.get(2).getProject().getName());
+        Assert.assertEquals(20L, steps.get(2).getWaited());
+
+        long total = 0;
+        for (CriticalPath.Step step : steps) {
+            total += step.getWaited() + step.getProject().getDuration();
+        }
+        Assert.assertEquals(criticalPath.getWallClock(), total);
+
+        List<CriticalPath.Slack> slacks = criticalPath.getSlacks();
+        Assert.assertEquals(4, slacks.size());
+        Assert.assertEquals("a", slacks.get(0).getProject());
+        Assert.assertEquals(0L, slacks.get(0).getSlack());
+        Assert.assertEquals("d", slacks.get(1).getProject());
+        Assert.assertEquals(0L, slacks.get(1).getSlack());
+        Assert.assertEquals("b", slacks.get(2).getProject());
+        Assert.assertEquals(20L, slacks.get(2).getSlack());
+        Assert.assertEquals("c", slacks.get(3).getProject());
+        Assert.assertEquals(170L, slacks.get(3).getSlack());
+    }
+}
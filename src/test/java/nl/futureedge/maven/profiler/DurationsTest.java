@@ -0,0 +1,40 @@
+package nl.futureedge.maven.profiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DurationsTest {
+
+    @Test
+    public void testMicroseconds() {
+        Assert.assertEquals("  0.000 µs", Durations.format(0L, Durations.Resolution.MICROSECONDS));
+        Assert.assertEquals(" 12.345 µs", Durations.format(12_345L, Durations.Resolution.MICROSECONDS));
+        Assert.assertEquals("  2.345 ms", Durations.format(2_345_678L, Durations.Resolution.MICROSECONDS));
+        Assert.assertEquals("999.999 ms", Durations.format(999_999_999L, Durations.Resolution.MICROSECONDS));
+        Assert.assertEquals(" 1.000 sec", Durations.format(1_000_000_000L, Durations.Resolution.MICROSECONDS));
+        Assert.assertEquals("  3:46 min", Durations.format(226_345_000_000L, Durations.Resolution.MICROSECONDS));
+        Assert.assertEquals("  2:23 hrs", Durations.format(8_595_677_000_000L, Durations.Resolution.MICROSECONDS));
+    }
+
+    @Test
+    public void testMilliseconds() {
+        Assert.assertEquals("  0.012 ms", Durations.format(12_345L, Durations.Resolution.MILLISECONDS));
+        Assert.assertEquals("  2.345 ms", Durations.format(2_345_678L, Durations.Resolution.MILLISECONDS));
+        Assert.assertEquals(" 6.123 sec", Durations.format(6_123_000_000L, Durations.Resolution.MILLISECONDS));
+    }
+
+    @Test
+    public void testSeconds() {
+        Assert.assertEquals(" 0.000 sec", Durations.format(12_345L, Durations.Resolution.SECONDS));
+        Assert.assertEquals(" 0.002 sec", Durations.format(2_345_678L, Durations.Resolution.SECONDS));
+        Assert.assertEquals(" 6.123 sec", Durations.format(6_123_000_000L, Durations.Resolution.SECONDS));
+    }
+
+    @Test
+    public void testParseResolution() {
+        Assert.assertEquals(Durations.Resolution.MICROSECONDS, Durations.Resolution.parse("us"));
+        Assert.assertEquals(Durations.Resolution.MILLISECONDS, Durations.Resolution.parse(" ms "));
+        Assert.assertEquals(Durations.Resolution.SECONDS, Durations.Resolution.parse("s"));
+        Assert.assertNull(Durations.Resolution.parse("minutes"));
+    }
+}
@@ -0,0 +1,146 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflective event determination (as used before the dispatch cache was introduced) with the cached
+ * {@link EventDispatcher}, and measures the throughput of {@link Profiler#onEvent(Object)}.
+ *
+ * <p>
+ * Not a unit test; run the main method using the test classpath.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventDispatcherBenchmark {
+
+    private Object[] events;
+    private EventDispatcher dispatcher;
+    private Profiler profiler;
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EventDispatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setupEvents() throws ReflectiveOperationException {
+        events = new Object[]{
+                executionEvent(ExecutionEvent.Type.MojoStarted),
+                repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING),
+                repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADED),
+                repositoryEvent(RepositoryEvent.EventType.ARTIFACT_INSTALLED),
+                executionEvent(ExecutionEvent.Type.MojoSucceeded),
+        };
+        dispatcher = new EventDispatcher();
+    }
+
+    @Setup(Level.Iteration)
+    public void setupProfiler() {
+        // Fresh profiler every iteration so the collected samples do not accumulate over the whole benchmark
+        profiler = new Profiler();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeProfiler() {
+        // Stops the thread of the profiler (after processing the remaining events)
+        profiler.close();
+    }
+
+    @Benchmark
+    public void legacyDetermineEvent(final Blackhole blackhole) throws ReflectiveOperationException {
+        for (final Object event : events) {
+            blackhole.consume(Legacy.determineEvent(event));
+        }
+    }
+
+    @Benchmark
+    public void cachedDetermineEvent(final Blackhole blackhole) {
+        for (final Object event : events) {
+            blackhole.consume(dispatcher.determineEvent(event));
+        }
+    }
+
+    @Benchmark
+    public void onEvent() {
+        for (final Object event : events) {
+            profiler.onEvent(event);
+        }
+    }
+
+    private static Object repositoryEvent(final RepositoryEvent.EventType type) {
+        return new RepositoryEvent.Builder(new DefaultRepositorySystemSession(), type).build();
+    }
+
+    private static Object executionEvent(final ExecutionEvent.Type type) throws ReflectiveOperationException {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-compiler-plugin");
+        final MojoExecution mojoExecution = new MojoExecution(plugin, "compile", "default-compile");
+        return ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", type, null, mojoExecution, null);
+    }
+
+    /**
+     * Event determination as it was done before the introduction of {@link EventDispatcher}: the class hierarchy is
+     * walked and the methods are looked up on every event.
+     */
+    private static final class Legacy {
+
+        static Object determineEvent(final Object event) throws ReflectiveOperationException {
+            final Set<String> classesAndInterfaces = determineClassesAndInterfaces(event.getClass());
+            if (classesAndInterfaces.contains("org.eclipse.aether.RepositoryEvent")) {
+                final Class<?> repositoryClass = Class.forName("org.eclipse.aether.RepositoryEvent");
+                return repositoryClass.getMethod("getType").invoke(event).toString();
+            } else if (classesAndInterfaces.contains("org.apache.maven.execution.ExecutionEvent")) {
+                final Class<?> executionEventInterface = Class.forName("org.apache.maven.execution.ExecutionEvent");
+                final String eventType = executionEventInterface.getMethod("getType").invoke(event).toString();
+                final Object mojoExecution = executionEventInterface.getMethod("getMojoExecution").invoke(event);
+                final Class<?> mojoExecutionClass = Class.forName("org.apache.maven.plugin.MojoExecution");
+                return eventType + mojoExecutionClass.getMethod("getGroupId").invoke(mojoExecution) + ":"
+                        + mojoExecutionClass.getMethod("getArtifactId").invoke(mojoExecution) + ":"
+                        + mojoExecutionClass.getMethod("getGoal").invoke(mojoExecution) + "@"
+                        + mojoExecutionClass.getMethod("getExecutionId").invoke(mojoExecution);
+            }
+            return null;
+        }
+
+        private static Set<String> determineClassesAndInterfaces(final Class<?> clazz) {
+            final Set<String> result = new HashSet<>();
+            Class<?> theClass = clazz;
+            while (theClass != null) {
+                for (final Class<?> theInterface : theClass.getInterfaces()) {
+                    result.add(theInterface.getName());
+                }
+                result.add(theClass.getName());
+                theClass = theClass.getSuperclass();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventDispatcherTest {
+
+    private EventDispatcher subject = new EventDispatcher();
+
+    @Test
+    public void testRepositoryEvents() {
+        Event downloading = subject.determineEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING));
+        Assert.assertEquals("maven:repository:artifact-download", downloading.getIdentifier());
+        Assert.assertTrue(downloading.isStart());
+
+        Event downloaded = subject.determineEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADED));
+        Assert.assertEquals("maven:repository:artifact-download", downloaded.getIdentifier());
+        Assert.assertFalse(downloaded.isStart());
+
+        Event installed = subject.determineEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_INSTALLED));
+        Assert.assertNull(installed.getIdentifier());
+    }
+
+    @Test
+    public void testResolutionEvents() {
+        Artifact artifact = new DefaultArtifact("group:artifact:1.0");
+        Event resolving = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.ARTIFACT_RESOLVING).setArtifact(artifact).build());
+        Event resolved = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.ARTIFACT_RESOLVED).setArtifact(artifact).setRepository(new LocalRepository("target")).build());
+        Assert.assertEquals("maven:repository:artifact-resolution", resolving.getIdentifier());
+        Assert.assertTrue(resolving.isStart());
+        Assert.assertTrue(resolving.isThreadBound());
+        Assert.assertEquals("maven:repository:artifact-resolution", resolved.getIdentifier());
+        Assert.assertFalse(resolved.isStart());
+        // Correlated without repository (as it is only known when resolved)
+        Assert.assertEquals(resolving.getCorrelationKey(), resolved.getCorrelationKey());
+        Assert.assertEquals(RepositoryResource.Origin.NONE, resolving.getResource().getOrigin());
+        Assert.assertEquals(RepositoryResource.Origin.LOCAL, resolved.getResource().getOrigin());
+        Assert.assertEquals("local", resolved.getResource().getRepository());
+
+        Metadata metadata = new DefaultMetadata("group", "artifact", "1.0-SNAPSHOT", "maven-metadata.xml", Metadata.Nature.SNAPSHOT);
+        RemoteRepository central = new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2").build();
+        Event downloading = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.METADATA_DOWNLOADING).setMetadata(metadata).setRepository(central).build());
+        Assert.assertEquals("maven:repository:metadata-download", downloading.getIdentifier());
+        Assert.assertFalse(downloading.isThreadBound());
+        Assert.assertEquals("central", downloading.getResource().getRepository());
+        Assert.assertEquals(RepositoryResource.Origin.REMOTE, downloading.getResource().getOrigin());
+        Assert.assertTrue(downloading.getResource().isSnapshot());
+
+        Event invalid = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.METADATA_INVALID).setMetadata(metadata).setRepository(central).build());
+        Assert.assertNull(invalid.getIdentifier());
+        Assert.assertNotNull(invalid.getResource());
+    }
+
+    @Test
+    public void testSnapshotResolutionEvents() {
+        // Resolution of a snapshot starts with the requested version and ends with the resolved (timestamped) version
+        Event resolving = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.ARTIFACT_RESOLVING).setArtifact(new DefaultArtifact("group:artifact:jar:tests:1.0-SNAPSHOT")).build());
+        Event resolved = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.ARTIFACT_RESOLVED).setArtifact(new DefaultArtifact("group:artifact:jar:tests:1.0-20240101.120000-1"))
+                .setRepository(new RemoteRepository.Builder("snapshots", "default", "https://repo.example.com/snapshots").build()).build());
+        Assert.assertEquals(resolving.getCorrelationKey(), resolved.getCorrelationKey());
+        Assert.assertEquals("group:artifact:jar:tests:1.0-SNAPSHOT", resolving.getResource().getName());
+        Assert.assertEquals("group:artifact:jar:tests:1.0-SNAPSHOT", resolved.getResource().getName());
+
+        Metadata metadata = new DefaultMetadata("group", "artifact", "1.0-SNAPSHOT", "maven-metadata.xml", Metadata.Nature.SNAPSHOT);
+        Event downloading = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.METADATA_DOWNLOADING).setMetadata(metadata).build());
+        Assert.assertEquals("group:artifact:1.0-SNAPSHOT/maven-metadata.xml", downloading.getResource().getName());
+        Event groupMetadata = subject.determineEvent(new RepositoryEvent.Builder(new DefaultRepositorySystemSession(),
+                RepositoryEvent.EventType.METADATA_DOWNLOADING).setMetadata(new DefaultMetadata("group", "maven-metadata.xml",
+                Metadata.Nature.RELEASE)).build());
+        Assert.assertEquals("group/maven-metadata.xml", groupMetadata.getResource().getName());
+    }
+
+    @Test
+    public void testExecutionEvents() throws ReflectiveOperationException {
+        // Same event class, different instances; must be resolved using the cached handles
+        for (int i = 0; i < 3; i++) {
+            Event started = subject.determineEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "goal" + i));
+            Assert.assertEquals("group:artifact:goal" + i + "@execution", started.getIdentifier());
+            Assert.assertTrue(started.isStart());
+
+            Event failed = subject.determineEvent(executionEvent(ExecutionEvent.Type.MojoFailed, "goal" + i));
+            Assert.assertEquals("group:artifact:goal" + i + "@execution", failed.getIdentifier());
+            Assert.assertFalse(failed.isStart());
+            Assert.assertTrue(failed.isFailed());
+
+            Event succeeded = subject.determineEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "goal" + i));
+            Assert.assertFalse(succeeded.isFailed());
+        }
+
+        Event projectStarted = subject.determineEvent(executionEvent(ExecutionEvent.Type.ProjectStarted, "goal"));
+        Assert.assertEquals(Event.PROJECT, projectStarted.getIdentifier());
+
+        Event projectSkipped = subject.determineEvent(executionEvent(ExecutionEvent.Type.ProjectSkipped, "goal"));
+        Assert.assertNull(projectSkipped.getIdentifier());
+    }
+
+    @Test
+    public void testLifecycleEvents() throws ReflectiveOperationException {
+        Event executionStarted = subject.determineEvent(new DefaultMavenExecutionRequest());
+        Assert.assertEquals(Event.EXECUTION, executionStarted.getIdentifier());
+        Assert.assertTrue(executionStarted.isStart());
+        Event executionEnded = subject.determineEvent(new DefaultMavenExecutionResult());
+        Assert.assertEquals(Event.EXECUTION, executionEnded.getIdentifier());
+        Assert.assertFalse(executionEnded.isStart());
+
+        Event discoveryStarted = subject.determineEvent(executionEvent(ExecutionEvent.Type.ProjectDiscoveryStarted, "goal"));
+        Assert.assertEquals(Event.Category.MAVEN, discoveryStarted.getCategory());
+        Assert.assertEquals(Event.PROJECT_DISCOVERY, discoveryStarted.getIdentifier());
+        Assert.assertTrue(discoveryStarted.isStart());
+
+        Event sessionStarted = subject.determineEvent(executionEvent(ExecutionEvent.Type.SessionStarted, "goal"));
+        Assert.assertEquals(Event.SESSION, sessionStarted.getIdentifier());
+        Assert.assertTrue(sessionStarted.isStart());
+        Event sessionEnded = subject.determineEvent(executionEvent(ExecutionEvent.Type.SessionEnded, "goal"));
+        Assert.assertEquals(Event.SESSION, sessionEnded.getIdentifier());
+        Assert.assertFalse(sessionEnded.isStart());
+
+        Event forkStarted = subject.determineEvent(executionEvent(ExecutionEvent.Type.ForkStarted, "goal"));
+        Assert.assertEquals(Event.FORK, forkStarted.getIdentifier());
+        Assert.assertTrue(forkStarted.isStart());
+        Event forkFailed = subject.determineEvent(executionEvent(ExecutionEvent.Type.ForkFailed, "goal"));
+        Assert.assertEquals(Event.FORK, forkFailed.getIdentifier());
+        Assert.assertFalse(forkFailed.isStart());
+        Assert.assertTrue(forkFailed.isFailed());
+
+        Event forkedProjectSucceeded = subject.determineEvent(executionEvent(ExecutionEvent.Type.ForkedProjectSucceeded, "goal"));
+        Assert.assertEquals(Event.FORKED_PROJECT, forkedProjectSucceeded.getIdentifier());
+        Assert.assertFalse(forkedProjectSucceeded.isStart());
+        Assert.assertFalse(forkedProjectSucceeded.isFailed());
+    }
+
+    @Test
+    public void testProjectEvents() throws ReflectiveOperationException {
+        MavenProject upstream = project("upstream");
+        MavenProject project = project("project");
+
+        DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        request.setDegreeOfConcurrency(4);
+        MavenSession session = new MavenSession(null, request, new DefaultMavenExecutionResult(), project);
+        session.setProjectDependencyGraph(new ProjectDependencyGraph() {
+            @Override
+            public List<MavenProject> getAllProjects() {
+                return Arrays.asList(upstream, project);
+            }
+
+            @Override
+            public List<MavenProject> getSortedProjects() {
+                return Arrays.asList(upstream, project);
+            }
+
+            @Override
+            public List<MavenProject> getDownstreamProjects(MavenProject mavenProject, boolean transitive) {
+                return mavenProject == upstream ? Collections.singletonList(project) : Collections.emptyList();
+            }
+
+            @Override
+            public List<MavenProject> getUpstreamProjects(MavenProject mavenProject, boolean transitive) {
+                return mavenProject == project ? Collections.singletonList(upstream) : Collections.emptyList();
+            }
+        });
+
+        Event started = subject.determineEvent(
+                ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", ExecutionEvent.Type.ProjectStarted,
+                        session, null, null));
+        Assert.assertEquals(Event.Category.PROJECT, started.getCategory());
+        Assert.assertEquals(Event.PROJECT, started.getIdentifier());
+        Assert.assertTrue(started.isStart());
+        Assert.assertEquals("group:project", started.getProject());
+        Assert.assertEquals(Collections.singletonList("group:upstream"), started.getUpstreamProjects());
+        Assert.assertEquals(4, started.getDegreeOfConcurrency());
+
+        Event finished = subject.determineEvent(
+                ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", ExecutionEvent.Type.ProjectFailed,
+                        session, null, null));
+        Assert.assertEquals(Event.Category.PROJECT, finished.getCategory());
+        Assert.assertFalse(finished.isStart());
+        Assert.assertEquals("group:project", finished.getProject());
+    }
+
+    @Test
+    public void testCapture() throws ReflectiveOperationException {
+        MavenProject project = project("project");
+        MavenSession session = new MavenSession(null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult(), project);
+        EventDispatcher.CapturedEvent captured = subject.capture(
+                ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", ExecutionEvent.Type.ProjectStarted,
+                        session, null, null));
+        Assert.assertEquals(Event.Category.PROJECT, captured.getCategory());
+
+        // Completed later, after the session moved on to another project
+        session.setCurrentProject(project("other"));
+        Event started = subject.complete(captured);
+        Assert.assertEquals("group:project", started.getProject());
+        Assert.assertTrue(started.getUpstreamProjects().isEmpty());
+
+        Assert.assertNull(subject.capture("unknownEventType"));
+    }
+
+    @Test
+    public void testUnsupportedEvent() {
+        Assert.assertNull(subject.determineEvent("unknownEventType"));
+        Assert.assertNull(subject.determineEvent("unknownEventType"));
+    }
+
+    private MavenProject project(String artifactId) {
+        MavenProject project = new MavenProject();
+        project.setGroupId("group");
+        project.setArtifactId(artifactId);
+        return project;
+    }
+
+    private RepositoryEvent repositoryEvent(RepositoryEvent.EventType type) {
+        return new RepositoryEvent.Builder(new DefaultRepositorySystemSession(), type).build();
+    }
+
+    private Object executionEvent(ExecutionEvent.Type type, String goal) throws ReflectiveOperationException {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("group");
+        plugin.setArtifactId("artifact");
+
+        MojoExecution mojoExecution = new MojoExecution(plugin, goal, "execution");
+
+        return ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", type, null, mojoExecution, null);
+    }
+}
@@ -0,0 +1,97 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventFilterTest {
+
+    private static final String COMPILE = "org.apache.maven.plugins:maven-compiler-plugin:compile@default-compile";
+    private static final String ENFORCE = "org.apache.maven.plugins:maven-enforcer-plugin:enforce@enforce";
+
+    @Test
+    public void testAll() {
+        EventFilter subject = new EventFilter(Collections.emptyList(), Collections.emptyList(), EnumSet.allOf(Event.Category.class), 100);
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MOJO, COMPILE, true)));
+        Assert.assertTrue(subject.accept(repositoryEvent("group:artifact:jar:1.0")));
+    }
+
+    @Test
+    public void testPatterns() {
+        EventFilter subject = new EventFilter(Arrays.asList("org.apache.maven.plugins:*", "maven:*"), Collections.singletonList("*:enforce@*"),
+                EnumSet.allOf(Event.Category.class), 100);
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MOJO, COMPILE, true)));
+        Assert.assertFalse(subject.accept(new Event(Event.Category.MOJO, ENFORCE, true)));
+        // Cached result
+        Assert.assertFalse(subject.accept(new Event(Event.Category.MOJO, ENFORCE, false)));
+        Assert.assertFalse(subject.accept(new Event(Event.Category.MOJO, "org.codehaus.mojo:exec-maven-plugin:exec@run", true)));
+        Assert.assertTrue(subject.accept(new Event(Event.Category.DEPENDENCY_RESOLUTION, "maven:dependency-resolution", true)));
+        // Regular expression characters are matched literally
+        subject = new EventFilter(Collections.singletonList("a.b*"), Collections.emptyList(), EnumSet.allOf(Event.Category.class), 100);
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MOJO, "a.b:c", true)));
+        Assert.assertFalse(subject.accept(new Event(Event.Category.MOJO, "axb:c", true)));
+        // Events without identifier are not matched
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MAVEN, null, true)));
+    }
+
+    @Test
+    public void testStructuralEvents() {
+        // The timeline of the build is recorded whatever the patterns
+        EventFilter subject = new EventFilter(Collections.singletonList("org.apache.*"), Collections.singletonList("maven:*"),
+                EnumSet.allOf(Event.Category.class), 100);
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MOJO, COMPILE, true)));
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MAVEN, Event.EXECUTION, true)));
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MAVEN, Event.PROJECT_DISCOVERY, true)));
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MAVEN, Event.SESSION, false)));
+        Assert.assertTrue(subject.accept(new Event(Event.Category.PROJECT, Event.PROJECT, true)));
+        Assert.assertFalse(subject.accept(new Event(Event.Category.MAVEN, Event.FORK, true)));
+        Assert.assertFalse(subject.accept(new Event(Event.Category.DEPENDENCY_RESOLUTION, "maven:dependency-resolution", true)));
+
+        // Only by category
+        subject = new EventFilter(Collections.emptyList(), Collections.emptyList(), EnumSet.of(Event.Category.MOJO), 100);
+        Assert.assertFalse(subject.accept(new Event(Event.Category.PROJECT, Event.PROJECT, true)));
+    }
+
+    @Test
+    public void testCategories() {
+        EventFilter subject = new EventFilter(Collections.emptyList(), Collections.emptyList(),
+                EnumSet.of(Event.Category.MOJO, Event.Category.PROJECT), 100);
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MOJO, COMPILE, true)));
+        Assert.assertTrue(subject.accept(new Event(Event.Category.PROJECT, Event.PROJECT, true)));
+        Assert.assertFalse(subject.accept(new Event(Event.Category.DEPENDENCY_RESOLUTION, "maven:dependency-resolution", true)));
+        Assert.assertFalse(subject.accept(repositoryEvent("group:artifact:jar:1.0")));
+        // Category only (before the identifier is known)
+        Assert.assertTrue(subject.accept(Event.Category.MOJO));
+        Assert.assertFalse(subject.accept(Event.Category.REPOSITORY));
+    }
+
+    @Test
+    public void testSampling() {
+        EventFilter subject = new EventFilter(Collections.emptyList(), Collections.emptyList(), EnumSet.allOf(Event.Category.class), 10);
+        Assert.assertEquals(10, subject.getRepositorySampling());
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String artifact = "group:artifact-" + i + ":jar:1.0";
+            boolean start = subject.accept(repositoryEvent(artifact));
+            // Start and end of the same resource are sampled alike
+            Assert.assertEquals(start, subject.accept(repositoryEvent(artifact)));
+            if (start) {
+                sampled++;
+            }
+        }
+        Assert.assertEquals(1_000, sampled, 150);
+        // Other categories are not sampled
+        Assert.assertTrue(subject.accept(new Event(Event.Category.MOJO, COMPILE, true)));
+
+        Assert.assertTrue(EventFilter.isSampled("anything", 100));
+        Assert.assertFalse(EventFilter.isSampled("anything", 0));
+        Assert.assertFalse(EventFilter.isSampled(null, 50));
+    }
+
+    private static Event repositoryEvent(String artifact) {
+        return new Event(Event.Category.REPOSITORY, Event.ARTIFACT_DOWNLOAD, true, Event.ARTIFACT_DOWNLOAD + ":" + artifact, false,
+                new RepositoryResource(artifact, "central", RepositoryResource.Origin.REMOTE, -1, false, false));
+    }
+}
@@ -0,0 +1,100 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the latency of {@link Profiler#onEvent(Object)} on the calling (build) thread, with 8 up to 64 threads
+ * emitting events concurrently (as a build with {@code -T} does). The events are processed on the thread of the
+ * profiler; the build threads only wait when the event buffer is full.
+ *
+ * <p>
+ * Not a unit test; run the main method using the test classpath.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventPipelineBenchmark {
+
+    private static final int[] THREADS = {8, 16, 32, 64};
+
+    private Profiler profiler;
+    private Object mojoStarted;
+    private Object mojoSucceeded;
+    private Object downloading;
+    private Object downloaded;
+
+    public static void main(final String[] args) throws RunnerException {
+        for (final int threads : THREADS) {
+            new Runner(new OptionsBuilder().include(EventPipelineBenchmark.class.getSimpleName()).threads(threads).build()).run();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupEvents() throws ReflectiveOperationException {
+        mojoStarted = executionEvent(ExecutionEvent.Type.MojoStarted);
+        mojoSucceeded = executionEvent(ExecutionEvent.Type.MojoSucceeded);
+        downloading = new RepositoryEvent.Builder(new DefaultRepositorySystemSession(), RepositoryEvent.EventType.ARTIFACT_DOWNLOADING).build();
+        downloaded = new RepositoryEvent.Builder(new DefaultRepositorySystemSession(), RepositoryEvent.EventType.ARTIFACT_DOWNLOADED).build();
+    }
+
+    @Setup(Level.Iteration)
+    public void setupProfiler() {
+        profiler = new Profiler();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeProfiler() {
+        // Stops the thread of the profiler (after processing the remaining events)
+        profiler.close();
+    }
+
+    /**
+     * Start and end of a mojo on the calling thread (correlated per thread).
+     */
+    @Benchmark
+    public void mojo() {
+        profiler.onEvent(mojoStarted);
+        profiler.onEvent(mojoSucceeded);
+    }
+
+    /**
+     * Start and end of a transfer (correlated across threads).
+     */
+    @Benchmark
+    public void transfer() {
+        profiler.onEvent(downloading);
+        profiler.onEvent(downloaded);
+    }
+
+    private static Object executionEvent(final ExecutionEvent.Type type) throws ReflectiveOperationException {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-compiler-plugin");
+        final MojoExecution mojoExecution = new MojoExecution(plugin, "compile", "default-compile");
+        return ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", type, null, mojoExecution, null);
+    }
+}
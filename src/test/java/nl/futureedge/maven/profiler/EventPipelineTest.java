@@ -0,0 +1,119 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventPipelineTest {
+
+    @Test
+    public void testOrder() {
+        List<Integer> processed = new ArrayList<>();
+        EventPipeline<Integer> subject = new EventPipeline<>(4, processed::add, "test");
+        subject.start();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(subject.publish(i));
+        }
+        subject.flush();
+        Assert.assertEquals(100, processed.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(Integer.valueOf(i), processed.get(i));
+        }
+        subject.close();
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        // Small buffer, so producers have to wait for the consumer
+        Map<Integer, List<Integer>> processed = new HashMap<>();
+        EventPipeline<int[]> subject = new EventPipeline<>(16,
+                item -> processed.computeIfAbsent(item[0], producer -> new ArrayList<>()).add(item[1]), "test");
+        subject.start();
+
+        int producers = 8;
+        int items = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            final int id = producer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < items; i++) {
+                    subject.publish(new int[]{id, i});
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Closing processes the remaining items
+        subject.close();
+
+        Assert.assertEquals(producers, processed.size());
+        for (List<Integer> sequence : processed.values()) {
+            // No items lost, items of a producer in order
+            Assert.assertEquals(items, sequence.size());
+            for (int i = 0; i < items; i++) {
+                Assert.assertEquals(Integer.valueOf(i), sequence.get(i));
+            }
+        }
+        Assert.assertTrue(subject.getProducerWaits() > 0);
+    }
+
+    @Test
+    public void testClosed() {
+        List<String> processed = new ArrayList<>();
+        EventPipeline<String> subject = new EventPipeline<>(8, item -> {
+            if ("fail".equals(item)) {
+                throw new IllegalStateException("Test");
+            }
+            processed.add(item);
+        }, "test");
+        subject.start();
+        subject.publish("fail");
+        subject.publish("first");
+        subject.close();
+        Assert.assertFalse(subject.publish("second"));
+        subject.flush();
+        Assert.assertEquals(1, processed.size());
+        Assert.assertEquals("first", processed.get(0));
+    }
+
+    @Test
+    public void testIdle() throws InterruptedException {
+        CountDownLatch processed = new CountDownLatch(1);
+        EventPipeline<String> subject = new EventPipeline<>(8, item -> processed.countDown(), "test-idle");
+        subject.start();
+        Thread consumer = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("test-idle".equals(thread.getName())) {
+                consumer = thread;
+            }
+        }
+        Assert.assertNotNull(consumer);
+        // Parked without timeout on the empty buffer
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (consumer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(Thread.State.WAITING, consumer.getState());
+
+        // Unparked by the producer
+        subject.publish("item");
+        Assert.assertTrue(processed.await(5, TimeUnit.SECONDS));
+        subject.close();
+        Assert.assertFalse(consumer.isAlive());
+    }
+}
@@ -0,0 +1,91 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExecutionStatisticsTest {
+
+    private ExecutionStatistics subject = new ExecutionStatistics();
+
+    @Test
+    public void testAggregates() {
+        Assert.assertTrue(subject.isEmpty());
+        for (int duration = 1; duration <= 1000; duration++) {
+            subject.record("a", duration);
+        }
+        subject.record("b", 1_000_000L);
+        subject.record("c", 1_000_000L);
+        Assert.assertFalse(subject.isEmpty());
+
+        ExecutionStatistics.Execution a = subject.get("a");
+        Assert.assertEquals(1000L, a.getCount());
+        Assert.assertEquals(500_500L, a.getTotal());
+        Assert.assertEquals(1L, a.getMin());
+        Assert.assertEquals(1000L, a.getMax());
+        Assert.assertEquals(500L, a.getAverage());
+        assertWithin(500L, a.getPercentile(50));
+        assertWithin(900L, a.getPercentile(90));
+        assertWithin(990L, a.getPercentile(99));
+        Assert.assertEquals(1000L, a.getPercentile(100));
+
+        // Single value; percentiles are limited to the recorded minimum and maximum
+        Assert.assertEquals(1_000_000L, subject.get("b").getPercentile(50));
+        Assert.assertNull(subject.get("d"));
+
+        // Equal totals are all reported
+        List<ExecutionStatistics.Execution> executions = subject.getExecutions();
+        Assert.assertEquals(3, executions.size());
+        Assert.assertEquals("b", executions.get(0).getIdentifier());
+        Assert.assertEquals("c", executions.get(1).getIdentifier());
+        Assert.assertEquals("a", executions.get(2).getIdentifier());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int duration = 0; duration < 10_000; duration++) {
+                    subject.record("mojo", duration);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        ExecutionStatistics.Execution mojo = subject.get("mojo");
+        Assert.assertEquals(40_000L, mojo.getCount());
+        Assert.assertEquals(4 * 49_995_000L, mojo.getTotal());
+        Assert.assertEquals(0L, mojo.getMin());
+        Assert.assertEquals(9_999L, mojo.getMax());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0L, histogram.getValueAtPercentile(50));
+
+        // Every value maps to a bucket whose highest value is not below the value and within the precision
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            long highest = Histogram.highestValueOf(Histogram.indexOf(value));
+            Assert.assertTrue(value + " -> " + highest, highest >= value);
+            Assert.assertTrue(value + " -> " + highest, highest - value <= value / 32);
+        }
+
+        Histogram other = new Histogram();
+        histogram.record(10);
+        other.record(20);
+        other.record(30);
+        histogram.add(other);
+        Assert.assertEquals(3L, histogram.getCount());
+        Assert.assertEquals(20L, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(30L, histogram.getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue(expected + " ~ " + actual, Math.abs(expected - actual) <= expected / 32 + 1);
+    }
+}
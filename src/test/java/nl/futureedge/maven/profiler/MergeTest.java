@@ -0,0 +1,112 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MergeTest {
+
+    private static final String COMPILE = "group:compiler:compile@default-compile";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMerge() throws IOException {
+        // Shard a: 90 fast compilations; shard b: 10 slow compilations
+        File shardA = writeShard("node-a/target/mojo-timer.dat", "node-a", 2000L, "group:a", 90, 10_000_000L);
+        File shardB = writeShard("node-b/target/mojo-timer.dat", "node-b", 1000L, "group:b", 10, 1_000_000_000L);
+
+        Merge subject = new Merge();
+        subject.add(shardA);
+        subject.add(shardB);
+
+        ExecutionStatistics.Execution compile = subject.getExecutions().get(COMPILE);
+        Assert.assertEquals(100L, compile.getCount());
+        Assert.assertEquals(90 * 10_000_000L + 10 * 1_000_000_000L, compile.getTotal());
+        Assert.assertEquals(10_000_000L, compile.getMin());
+        Assert.assertEquals(1_000_000_000L, compile.getMax());
+        // Combined percentiles (not an average of the percentiles of the shards)
+        Assert.assertEquals(10_000_000L, compile.getPercentile(90), 10_000_000L * 0.03);
+        Assert.assertEquals(1_000_000_000L, compile.getPercentile(91), 1_000_000_000L * 0.03);
+
+        List<ModuleMatrix.Totals> nodes = subject.getNodes(COMPILE);
+        Assert.assertEquals(2, nodes.size());
+        Assert.assertEquals("node-b", nodes.get(0).getName());
+        Assert.assertEquals(10L, nodes.get(0).getCount());
+        Assert.assertEquals("node-a", nodes.get(1).getName());
+        Assert.assertEquals(90L, nodes.get(1).getCount());
+
+        Assert.assertEquals(2, subject.getModules().getSlowestModules(10).size());
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        writeShard("node-a/target/mojo-timer.dat", "node-a", 2000L, "group:a", 2, 10_000_000L);
+        writeShard("node-b/target/mojo-timer.dat", "node-b", 1000L, "group:b", 1, 1_000_000_000L);
+        Files.write(new File(temporaryFolder.getRoot(), "node-b/target/other.dat").toPath(), new byte[]{1, 2, 3});
+        File output = new File(temporaryFolder.getRoot(), "merged");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = Merge.run(new String[]{"--resolution", "ms", "--report", "json", "--directory", output.getPath(),
+                temporaryFolder.getRoot().getPath()}, print(out), print(err));
+
+        Assert.assertEquals(err.toString("UTF-8"), 0, status);
+        String[] lines = out.toString("UTF-8").split("\n");
+        Assert.assertEquals("Merged 2 runs from 2 nodes: node-a, node-b", lines[0]);
+        Assert.assertEquals("Execution times:", lines[1]);
+        Assert.assertTrue(lines[2], lines[2].startsWith("[ 1.020 sec] executions:   3, min:  10.000 ms, max:  1.000 sec"));
+        Assert.assertTrue(lines[2], lines[2].endsWith(" - " + COMPILE));
+        Assert.assertEquals("    [ 1.000 sec] executions:   1 - node-b", lines[3]);
+        Assert.assertEquals("    [ 20.000 ms] executions:   2 - node-a", lines[4]);
+        Assert.assertEquals("Slowest modules:", lines[5]);
+        Assert.assertEquals("[ 1.000 sec] mojo executions:   1 - group:b (node-b)", lines[6]);
+        Assert.assertEquals("    [ 1.000 sec] executions:   1 - " + COMPILE, lines[7]);
+        Assert.assertTrue(new File(output, "mojo-timer.json").isFile());
+        // Timestamp of the first run
+        Assert.assertTrue(new String(Files.readAllBytes(new File(output, "mojo-timer.json").toPath()), StandardCharsets.UTF_8)
+                .contains("\"timestamp\": 1000,"));
+    }
+
+    @Test
+    public void testInvalidArguments() throws UnsupportedEncodingException {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Assert.assertEquals(2, Merge.run(new String[0], print(new ByteArrayOutputStream()), print(err)));
+        Assert.assertEquals(2, Merge.run(new String[]{"--unknown", "file"}, print(new ByteArrayOutputStream()), print(err)));
+        Assert.assertEquals(2, Merge.run(new String[]{"file", "--resolution"}, print(new ByteArrayOutputStream()), print(err)));
+        Assert.assertTrue(err.toString("UTF-8").contains("Usage: "));
+
+        Assert.assertEquals(1, Merge.run(new String[]{temporaryFolder.getRoot().getPath()}, print(new ByteArrayOutputStream()), print(err)));
+        Assert.assertTrue(err.toString("UTF-8").contains("No data files found"));
+    }
+
+    private File writeShard(String path, String node, long timestamp, String module, int executions, long duration) throws IOException {
+        ExecutionStatistics statistics = new ExecutionStatistics();
+        ModuleMatrix modules = new ModuleMatrix();
+        for (int i = 0; i < executions; i++) {
+            statistics.record(COMPILE, duration);
+            modules.record(module, COMPILE, duration);
+        }
+        File file = new File(temporaryFolder.getRoot(), path);
+        RunData.write(file, timestamp, node, null, statistics, modules);
+        return file;
+    }
+
+    private static PrintStream print(ByteArrayOutputStream output) {
+        try {
+            return new PrintStream(output, true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
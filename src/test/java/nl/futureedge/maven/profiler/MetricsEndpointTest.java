@@ -0,0 +1,55 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsEndpointTest {
+
+    @Test
+    public void testEndpoint() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsEndpoint subject = new MetricsEndpoint(registry);
+        subject.start(null, 0);
+        try {
+            // Loopback address only
+            Assert.assertEquals("http://127.0.0.1:" + subject.getPort() + MetricsEndpoint.PATH, subject.getUrl());
+            URL url = new URL(subject.getUrl());
+            registry.recordEvent("maven:session", 1_000_000_000L);
+
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            Assert.assertEquals(200, connection.getResponseCode());
+            Assert.assertEquals(MetricsRegistry.CONTENT_TYPE, connection.getContentType());
+            String body = read(connection.getInputStream());
+            Assert.assertTrue(body, body.contains("mojo_timer_event_duration_seconds_total{identifier=\"maven:session\"} 1\n"));
+            Assert.assertTrue(body.endsWith("# EOF\n"));
+
+            // Metrics are rendered per request
+            registry.recordEvent("maven:session", 1_000_000_000L);
+            body = read(url.openStream());
+            Assert.assertTrue(body, body.contains("mojo_timer_event_duration_seconds_total{identifier=\"maven:session\"} 2\n"));
+
+            HttpURLConnection post = (HttpURLConnection) url.openConnection();
+            post.setRequestMethod("POST");
+            Assert.assertEquals(405, post.getResponseCode());
+        } finally {
+            subject.stop();
+        }
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try (InputStream stream = input) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) {
+                result.write(buffer, 0, read);
+            }
+            return new String(result.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
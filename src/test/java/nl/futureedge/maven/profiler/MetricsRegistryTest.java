@@ -0,0 +1,104 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetricsRegistryTest {
+
+    private static final String COMPILE = "org.apache.maven.plugins:maven-compiler-plugin:compile@default-compile";
+    private static final String LABELS = "plugin=\"org.apache.maven.plugins:maven-compiler-plugin\",goal=\"compile\","
+            + "execution=\"default-compile\",module=\"group:module\",outcome=\"succeeded\"";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRender() {
+        MetricsRegistry subject = new MetricsRegistry();
+        subject.recordMojo(COMPILE, "group:module", false, TimeUnit.MILLISECONDS.toNanos(5));
+        subject.recordMojo(COMPILE, "group:module", false, TimeUnit.MILLISECONDS.toNanos(1500));
+        subject.recordMojo(COMPILE, "group:module", false, TimeUnit.MINUTES.toNanos(20));
+        subject.recordEvent("maven:dependency-resolution", 1_250_000L);
+        subject.recordEvent("maven:dependency-resolution", 250_000L);
+
+        StringBuilder output = new StringBuilder();
+        subject.render(output);
+        List<String> lines = Arrays.asList(output.toString().split("\n"));
+
+        Assert.assertEquals("# TYPE mojo_timer_mojo_duration_seconds histogram", lines.get(0));
+        Assert.assertEquals("# UNIT mojo_timer_mojo_duration_seconds seconds", lines.get(1));
+        // Buckets are cumulative; the outcome that did not occur is not rendered
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_bucket{" + LABELS + ",le=\"0.01\"} 1", lines.get(3));
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_bucket{" + LABELS + ",le=\"1.0\"} 1", lines.get(8));
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_bucket{" + LABELS + ",le=\"2.5\"} 2", lines.get(9));
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_bucket{" + LABELS + ",le=\"600.0\"} 2", lines.get(16));
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_bucket{" + LABELS + ",le=\"+Inf\"} 3", lines.get(17));
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_count{" + LABELS + "} 3", lines.get(18));
+        Assert.assertEquals("mojo_timer_mojo_duration_seconds_sum{" + LABELS + "} 1201.505", lines.get(19));
+        Assert.assertEquals("# TYPE mojo_timer_events counter", lines.get(20));
+        Assert.assertEquals("mojo_timer_events_total{identifier=\"maven:dependency-resolution\"} 2", lines.get(22));
+        Assert.assertEquals("mojo_timer_event_duration_seconds_total{identifier=\"maven:dependency-resolution\"} 0.0015", lines.get(26));
+        Assert.assertEquals("# EOF", lines.get(lines.size() - 1));
+
+        // Rendering again gives the same output (nothing is reset)
+        StringBuilder again = new StringBuilder();
+        subject.render(again);
+        Assert.assertEquals(output.toString(), again.toString());
+    }
+
+    @Test
+    public void testOutcomes() {
+        MetricsRegistry subject = new MetricsRegistry();
+        subject.recordMojo(COMPILE, null, true, 1L);
+
+        StringBuilder output = new StringBuilder();
+        subject.render(output);
+        Assert.assertTrue(output.toString().contains("_count{plugin=\"org.apache.maven.plugins:maven-compiler-plugin\",goal=\"compile\","
+                + "execution=\"default-compile\",module=\"\",outcome=\"failed\"} 1\n"));
+        Assert.assertFalse(output.toString().contains("outcome=\"succeeded\""));
+    }
+
+    @Test
+    public void testLabels() {
+        Assert.assertEquals("plugin=\"group:plugin\",goal=\"goal\",execution=\"id\",module=\"a\\\"b\\\\c\\nd\",outcome=\"succeeded\"",
+                MetricsRegistry.mojoLabels("group:plugin:goal@id", "a\"b\\c\nd", "succeeded"));
+        Assert.assertEquals("plugin=\"\",goal=\"goal\",execution=\"\",module=\"\",outcome=\"failed\"",
+                MetricsRegistry.mojoLabels("goal", "", "failed"));
+    }
+
+    @Test
+    public void testAppendSeconds() {
+        Assert.assertEquals("0", seconds(0));
+        Assert.assertEquals("0.000000001", seconds(1));
+        Assert.assertEquals("0.01", seconds(10_000_000L));
+        Assert.assertEquals("1.5", seconds(1_500_000_000L));
+        Assert.assertEquals("3600", seconds(TimeUnit.HOURS.toNanos(1)));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        MetricsRegistry subject = new MetricsRegistry();
+        subject.recordEvent("maven:session", 1L);
+        File file = new File(temporaryFolder.getRoot(), "collector/mojo-timer.prom");
+        subject.write(file);
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals("# EOF", lines.get(lines.size() - 1));
+        Assert.assertFalse(new File(file.getParentFile(), "mojo-timer.prom.tmp").exists());
+    }
+
+    private static String seconds(long nanos) {
+        StringBuilder result = new StringBuilder();
+        MetricsRegistry.appendSeconds(result, nanos);
+        return result.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModuleMatrixTest {
+
+    private ModuleMatrix subject = new ModuleMatrix();
+
+    @Test
+    public void testSlowest() {
+        Assert.assertTrue(subject.isEmpty());
+
+        subject.record("group:module-a", "compile", 100L);
+        subject.record("group:module-a", "test", 400L);
+        subject.record("group:module-a", "test", 100L);
+        subject.record("group:module-b", "compile", 300L);
+        subject.record("group:module-c", "compile", 50L);
+        Assert.assertFalse(subject.isEmpty());
+
+        List<ModuleMatrix.Totals> modules = subject.getSlowestModules(2);
+        Assert.assertEquals(2, modules.size());
+        Assert.assertEquals("group:module-a", modules.get(0).getName());
+        Assert.assertEquals(600L, modules.get(0).getTotal());
+        Assert.assertEquals(3L, modules.get(0).getCount());
+        Assert.assertEquals("group:module-b", modules.get(1).getName());
+
+        List<ModuleMatrix.Totals> mojos = subject.getSlowestMojos("group:module-a", 5);
+        Assert.assertEquals(2, mojos.size());
+        Assert.assertEquals("test", mojos.get(0).getName());
+        Assert.assertEquals(500L, mojos.get(0).getTotal());
+        Assert.assertEquals(2L, mojos.get(0).getCount());
+        Assert.assertEquals("compile", mojos.get(1).getName());
+
+        Assert.assertTrue(subject.getSlowestMojos("group:unknown", 5).isEmpty());
+    }
+
+    @Test
+    public void testTies() {
+        subject.record("group:module-b", "compile", 100L);
+        subject.record("group:module-a", "compile", 100L);
+
+        List<ModuleMatrix.Totals> modules = subject.getSlowestModules(10);
+        Assert.assertEquals(2, modules.size());
+        Assert.assertEquals("group:module-a", modules.get(0).getName());
+        Assert.assertEquals("group:module-b", modules.get(1).getName());
+    }
+}
@@ -2,18 +2,30 @@ package nl.futureedge.maven.profiler;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.SortedMap;
+import java.util.Map;
+import java.util.Properties;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.Logger;
 import org.apache.logging.log4j.test.appender.ListAppender;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
 import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -21,6 +33,12 @@ public class ProfilerTest {
 
     private Profiler subject = new Profiler();
 
+    @After
+    public void close() {
+        // Stops the event processing thread (also when the test already closed the profiler)
+        subject.close();
+    }
+
     @Test
     public void testEvents() throws ReflectiveOperationException {
         subject.onEvent(ReflectionUtils.instantiate("org.apache.maven.settings.building.DefaultSettingsBuildingRequest"));
@@ -47,21 +65,22 @@ public class ProfilerTest {
         subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "group", "artifact", "goal2", "execution"));
 
         subject.onEvent("unknownEventType");
+        subject.flush();
 
         // Check collected data
         Field executionsField = Profiler.class.getDeclaredField("executions");
         executionsField.setAccessible(true);
-        SortedMap<String, List<Long>> executions = (SortedMap<String, List<Long>>) executionsField.get(subject);
-        System.out.println("Executions: " + executions);
-        Assert.assertEquals(7, executions.size());
-        Assert.assertEquals(1, executions.get("maven:settings-building").size());
-        Assert.assertEquals(1, executions.get("maven:toolchains-building").size());
-        Assert.assertEquals(1, executions.get("maven:dependency-resolution").size());
-        Assert.assertEquals(1, executions.get("maven:repository:artifact-download").size());
-        Assert.assertEquals(1, executions.get("maven:repository:artifact-deployment").size());
-        List<Long> goal1 = executions.get("group:artifact:goal1@execution");
-        Assert.assertEquals(2, goal1.size());
-        Assert.assertEquals(1, executions.get("group:artifact:goal2@execution").size());
+        ExecutionStatistics executions = (ExecutionStatistics) executionsField.get(subject);
+        Assert.assertEquals(9, executions.getExecutions().size());
+        Assert.assertEquals(1, executions.get("maven:execution").getCount());
+        Assert.assertEquals(1, executions.get("maven:settings-building").getCount());
+        Assert.assertEquals(1, executions.get("maven:toolchains-building").getCount());
+        Assert.assertEquals(1, executions.get("maven:dependency-resolution").getCount());
+        Assert.assertEquals(1, executions.get("maven:repository:artifact-download").getCount());
+        Assert.assertEquals(1, executions.get("maven:repository:artifact-deployment").getCount());
+        Assert.assertEquals(1, executions.get("maven:repository:artifact-resolution").getCount());
+        Assert.assertEquals(2, executions.get("group:artifact:goal1@execution").getCount());
+        Assert.assertEquals(1, executions.get("group:artifact:goal2@execution").getCount());
 
         Field unsupportedEventsField = Profiler.class.getDeclaredField("unsupportedEvents");
         unsupportedEventsField.setAccessible(true);
@@ -70,18 +89,22 @@ public class ProfilerTest {
         Assert.assertEquals(1, unsupportedEvents.size());
         Assert.assertTrue(unsupportedEvents.contains("java.lang.String"));
 
-        executions.clear();
-        executions.put("group:artifact:goal1@execution", goal1);
-        goal1.clear();
+        reset("downloads", new TransferStatistics(10));
+        reset("deployments", new TransferStatistics(10));
+        reset("resolver", new ResolverStatistics());
+        reset("resources", new ResourceUsage());
+        reset("phases", new BuildPhases());
+        executions = new ExecutionStatistics();
+        reset("executions", executions);
 
         // Display a minutes (3:46 min + 345 ms)
-        goal1.add(226345L);
+        executions.record("group:artifact:goal1@execution", 226_345_000_000L);
 
         // Display as seconds (6.123 sec)
-        goal1.add(6123L);
+        executions.record("group:artifact:goal1@execution", 6_123_000_000L);
 
         // Display as hours (2:23 hrs + 15 sec + 677 ms)
-        goal1.add(8595677L);
+        executions.record("group:artifact:goal1@execution", 8_595_677_000_000L);
 
         Logger logger = (Logger) LogManager.getLogger(Profiler.class.getName());
         ListAppender listAppender = new ListAppender("ProfilerTest");
@@ -100,31 +123,230 @@ public class ProfilerTest {
             messages.add(logEvent.getMessage().getFormattedMessage());
         }
 
+        // Own time of the profiler (varies); only logged, not part of the execution statistics
+        String overheadSummary = messages.remove(messages.size() - 2);
+        Assert.assertTrue(overheadSummary, overheadSummary.startsWith("Profiler overhead: ") && overheadSummary.contains(" in 21 events (avg: ")
+                && overheadSummary.contains(", p99: ") && overheadSummary.contains(", max: "));
+        Assert.assertNull(executions.get(Profiler.OVERHEAD));
+
         List<String> expected = new ArrayList<>();
         expected.add("Execution times:");
-        expected.add("[  2:27 hrs] executions:   3, min:  6.123 sec, max:   2:23 hrs, avg:  49:02 min - group:artifact:goal1@execution");
+        expected.add("[  2:27 hrs] executions:   3, min:  6.123 sec, max:   2:23 hrs, avg:  49:02 min, p50:   3:47 min, p90:   2:23 hrs, p99:   2:23 hrs - group:artifact:goal1@execution");
         expected.add("------------------------------------------------------------------------");
         expected.add("Unsupported events encountered:");
         expected.add(" - java.lang.String");
         expected.add("------------------------------------------------------------------------");
+        expected.add("------------------------------------------------------------------------");
 
         Assert.assertEquals(expected, messages);
     }
 
+    @Test
+    public void testInvalidDuration() throws ReflectiveOperationException {
+        // Start time after the end time (not possible with a monotonic clock)
+        Field startsField = Profiler.class.getDeclaredField("starts");
+        startsField.setAccessible(true);
+        Map<String, Long> starts = (Map<String, Long>) startsField.get(subject);
+        starts.put("group:artifact:goal1@execution@" + Thread.currentThread().getId(), System.nanoTime() + 60_000_000_000L);
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "group", "artifact", "goal1", "execution"));
+        subject.flush();
+
+        Field executionsField = Profiler.class.getDeclaredField("executions");
+        executionsField.setAccessible(true);
+        Assert.assertTrue(((ExecutionStatistics) executionsField.get(subject)).isEmpty());
+
+        Field badSamplesField = Profiler.class.getDeclaredField("badSamples");
+        badSamplesField.setAccessible(true);
+        Assert.assertEquals(1L, ((LongAdder) badSamplesField.get(subject)).sum());
+    }
+
+    @Test
+    public void testModules() throws ReflectiveOperationException {
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-a", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal2", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-a", "group", "artifact", "goal2", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-b", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-b", "group", "artifact", "goal1", "execution"));
+        subject.flush();
+
+        Field modulesField = Profiler.class.getDeclaredField("modules");
+        modulesField.setAccessible(true);
+        ModuleMatrix modules = (ModuleMatrix) modulesField.get(subject);
+
+        Assert.assertEquals(2, modules.getSlowestModules(10).size());
+        Assert.assertEquals(2, modules.getSlowestMojos("group:module-a", 10).size());
+        Assert.assertEquals(1, modules.getSlowestMojos("group:module-b", 10).size());
+        Assert.assertEquals("group:artifact:goal1@execution", modules.getSlowestMojos("group:module-b", 10).get(0).getName());
+    }
+
+    @Test
+    public void testFilter() throws ReflectiveOperationException {
+        Properties properties = new Properties();
+        properties.setProperty("mojo-timer.exclude", "*:goal2@*");
+        properties.setProperty("mojo-timer.categories", "mojo");
+        Configuration configuration = new Configuration(properties);
+        reset("filter", new EventFilter(configuration.getIncludes(), configuration.getExcludes(), configuration.getCategories(),
+                configuration.getRepositorySampling()));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-a", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal2", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-a", "group", "artifact", "goal2", "execution"));
+        subject.onEvent(ReflectionUtils.instantiate("org.apache.maven.project.DefaultDependencyResolutionRequest"));
+        subject.onEvent(ReflectionUtils.instantiate("org.apache.maven.project.DefaultDependencyResolutionResult"));
+        subject.flush();
+
+        Field executionsField = Profiler.class.getDeclaredField("executions");
+        executionsField.setAccessible(true);
+        ExecutionStatistics executions = (ExecutionStatistics) executionsField.get(subject);
+        Assert.assertEquals(1, executions.getExecutions().size());
+        Assert.assertEquals("group:artifact:goal1@execution", executions.getExecutions().get(0).getIdentifier());
+
+        Field filteredField = Profiler.class.getDeclaredField("filteredEvents");
+        filteredField.setAccessible(true);
+        Assert.assertEquals(4L, ((LongAdder) filteredField.get(subject)).sum());
+    }
+
+    @Test
+    public void testMetrics() throws ReflectiveOperationException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        reset("metrics", metrics);
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-a", "group", "artifact", "goal", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoFailed, "module-a", "group", "artifact", "goal", "execution"));
+        subject.onEvent(ReflectionUtils.instantiate("org.apache.maven.project.DefaultDependencyResolutionRequest"));
+        subject.onEvent(ReflectionUtils.instantiate("org.apache.maven.project.DefaultDependencyResolutionResult"));
+        subject.flush();
+
+        StringBuilder output = new StringBuilder();
+        metrics.render(output);
+        String labels = "{plugin=\"group:artifact\",goal=\"goal\",execution=\"execution\",module=\"group:module-a\",outcome=";
+        Assert.assertTrue(output.toString(), output.toString().contains("mojo_timer_mojo_duration_seconds_count" + labels + "\"succeeded\"} 1\n"));
+        Assert.assertTrue(output.toString(), output.toString().contains("mojo_timer_mojo_duration_seconds_count" + labels + "\"failed\"} 1\n"));
+        Assert.assertTrue(output.toString(), output.toString().contains("mojo_timer_events_total{identifier=\"maven:dependency-resolution\"} 1\n"));
+    }
+
+    @Test
+    public void testPhases() throws ReflectiveOperationException {
+        subject.onEvent(new DefaultMavenExecutionRequest());
+        subject.onEvent(executionEvent(ExecutionEvent.Type.ProjectDiscoveryStarted, null, null, null, null));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.SessionStarted, null, null, null, null));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.ProjectStarted, "module-a", null, null, null, null));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoStarted, "module-a", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.MojoSucceeded, "module-a", "group", "artifact", "goal1", "execution"));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.ProjectSucceeded, "module-a", null, null, null, null));
+        subject.onEvent(executionEvent(ExecutionEvent.Type.SessionEnded, null, null, null, null));
+        subject.onEvent(new DefaultMavenExecutionResult());
+        subject.flush();
+
+        Field executionsField = Profiler.class.getDeclaredField("executions");
+        executionsField.setAccessible(true);
+        ExecutionStatistics executions = (ExecutionStatistics) executionsField.get(subject);
+        Assert.assertEquals(1, executions.get("maven:execution").getCount());
+        // Ended by the start of the session
+        Assert.assertEquals(1, executions.get("maven:project-discovery").getCount());
+        Assert.assertEquals(1, executions.get("maven:session").getCount());
+        Assert.assertEquals(1, executions.get("maven:project").getCount());
+
+        // Only mojos are attributed to modules
+        Field modulesField = Profiler.class.getDeclaredField("modules");
+        modulesField.setAccessible(true);
+        ModuleMatrix modules = (ModuleMatrix) modulesField.get(subject);
+        Assert.assertEquals(1, modules.getSlowestMojos("group:module-a", 10).size());
+
+        Field phasesField = Profiler.class.getDeclaredField("phases");
+        phasesField.setAccessible(true);
+        Field timelineField = Profiler.class.getDeclaredField("timeline");
+        timelineField.setAccessible(true);
+        List<BuildPhases.Phase> phases = ((BuildPhases) phasesField.get(subject)).determine((BuildTimeline) timelineField.get(subject));
+        List<String> names = new ArrayList<>();
+        for (BuildPhases.Phase phase : phases) {
+            names.add(phase.getName());
+        }
+        Assert.assertEquals(Arrays.asList("startup and extension loading", "repository session setup",
+                "project discovery and model building", "session (wall clock)", "mojos", "gaps between mojos",
+                "project scheduling (before the first and after the last mojo)", "threads not building a project", "session end",
+                "total"), names);
+    }
+
+    @Test
+    public void testConcurrentTransfers() throws Exception {
+        RemoteRepository central = new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2").build();
+        RemoteRepository mirror = new RemoteRepository.Builder("mirror", "default", "https://mirror.example.com/maven2").build();
+        Artifact artifactA = new DefaultArtifact("group:a:1.0");
+        Artifact artifactB = new DefaultArtifact("group:b:1.0");
+
+        // Interleaved downloads; ends on other threads than the starts
+        subject.onEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING, artifactA, central, null));
+        subject.onEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING, artifactB, central, null));
+        subject.onEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING, artifactA, mirror, null));
+        Thread other = new Thread(() -> {
+            subject.onEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADED, artifactB, central, null));
+            subject.onEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADED, artifactA, central, null));
+        });
+        other.start();
+        other.join();
+        subject.onEvent(repositoryEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADED, artifactA, mirror, new Exception("Not found")));
+        subject.flush();
+
+        Field downloadsField = Profiler.class.getDeclaredField("downloads");
+        downloadsField.setAccessible(true);
+        TransferStatistics downloads = (TransferStatistics) downloadsField.get(subject);
+
+        List<TransferStatistics.Repository> repositories = downloads.getRepositories();
+        Assert.assertEquals(2, repositories.size());
+        Assert.assertEquals("central", repositories.get(0).getId());
+        Assert.assertEquals(2L, repositories.get(0).getCount());
+        Assert.assertEquals(0L, repositories.get(0).getFailed());
+        Assert.assertEquals("mirror", repositories.get(1).getId());
+        Assert.assertEquals(0L, repositories.get(1).getCount());
+        Assert.assertEquals(1L, repositories.get(1).getFailed());
+        Assert.assertEquals(2, downloads.getSlowest().size());
+    }
+
+    private void reset(String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = Profiler.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(subject, value);
+    }
+
     private RepositoryEvent repositoryEvent(RepositoryEvent.EventType type) {
         RepositoryEvent.Builder builder = new RepositoryEvent.Builder(new DefaultRepositorySystemSession(), type);
         return builder.build();
     }
 
+    private RepositoryEvent repositoryEvent(RepositoryEvent.EventType type, Artifact artifact, ArtifactRepository repository,
+                                            Exception exception) {
+        RepositoryEvent.Builder builder = new RepositoryEvent.Builder(new DefaultRepositorySystemSession(), type);
+        builder.setArtifact(artifact);
+        builder.setRepository(repository);
+        builder.setException(exception);
+        return builder.build();
+    }
+
 
     private Object executionEvent(ExecutionEvent.Type type, String groupId, String artifactId, String goal, String executionId)
             throws ReflectiveOperationException {
+        return executionEvent(type, null, groupId, artifactId, goal, executionId);
+    }
+
+    private Object executionEvent(ExecutionEvent.Type type, String module, String groupId, String artifactId, String goal,
+                                  String executionId) throws ReflectiveOperationException {
         Plugin plugin = new Plugin();
         plugin.setGroupId(groupId);
         plugin.setArtifactId(artifactId);
 
         MojoExecution mojoExecution = new MojoExecution(plugin, goal, executionId);
 
-        return ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", type, null, mojoExecution, null);
+        MavenSession session = null;
+        if (module != null) {
+            MavenProject project = new MavenProject();
+            project.setGroupId("group");
+            project.setArtifactId(module);
+            session = new MavenSession(null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult(), project);
+        }
+
+        return ReflectionUtils.instantiate("org.apache.maven.lifecycle.internal.DefaultExecutionEvent", type, session, mojoExecution, null);
     }
 }
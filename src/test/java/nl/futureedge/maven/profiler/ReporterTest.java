@@ -0,0 +1,116 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReporterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Report report;
+
+    @Before
+    public void setup() {
+        ExecutionStatistics executions = new ExecutionStatistics();
+        executions.record("group:artifact:compile@default", 2_000_000_000L);
+        executions.record("group:artifact:compile@default", 1_000_000_000L);
+        // Equal totals must both be reported
+        executions.record("maven:dependency-resolution", 3_000_000_000L);
+        executions.record("group:artifact:test@\"quoted\",comma", 500_000_000L);
+
+        ModuleMatrix modules = new ModuleMatrix();
+        modules.record("group:module<a>", "group:artifact:compile@default", 3_000_000_000L);
+        modules.record("group:module<a>", "group:artifact:test@\"quoted\",comma", 500_000_000L);
+
+        report = Report.create(1_500_000_000_000L, executions, modules);
+    }
+
+    @Test
+    public void testReport() {
+        List<Report.Execution> executions = report.getExecutions();
+        Assert.assertEquals(3, executions.size());
+        Assert.assertEquals("group:artifact:compile@default", executions.get(0).getName());
+        Assert.assertEquals("maven:dependency-resolution", executions.get(1).getName());
+        Assert.assertEquals(2L, executions.get(0).getCount());
+        Assert.assertEquals(1_500_000_000L, executions.get(0).getAverage());
+        Assert.assertEquals(1, report.getModules().size());
+        Assert.assertEquals(2, report.getModules().get(0).getMojos().size());
+    }
+
+    @Test
+    public void testServiceLoader() {
+        Set<String> names = new TreeSet<>();
+        for (Reporter reporter : ServiceLoader.load(Reporter.class)) {
+            names.add(reporter.getName());
+        }
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("csv", "json", "junit")), names);
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        File file = new JsonReporter().report(report, new File(temporaryFolder.getRoot(), "target"));
+        Assert.assertEquals("mojo-timer.json", file.getName());
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(json, json.startsWith("{\n  \"timestamp\": 1500000000000,\n  \"executions\": [\n"
+                + "    {\"name\": \"group:artifact:compile@default\", \"count\": 2, \"total\": 3000000000, \"min\": 1000000000, "
+                + "\"max\": 2000000000, \"average\": 1500000000,"));
+        Assert.assertTrue(json, json.contains("{\"name\": \"group:artifact:test@\\\"quoted\\\",comma\", \"count\": 1, \"total\": 500000000}"));
+        Assert.assertTrue(json, json.endsWith("\n    ]}\n  ]\n}\n"));
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        File file = new CsvReporter().report(report, temporaryFolder.getRoot());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(6, lines.size());
+        Assert.assertEquals("kind,module,name,count,total,min,max,average,p50,p90,p99", lines.get(0));
+        Assert.assertEquals("execution,,maven:dependency-resolution,1,3000000000,3000000000,3000000000,3000000000,3000000000,3000000000,"
+                + "3000000000", lines.get(2));
+        Assert.assertTrue(lines.get(3), lines.get(3).startsWith("execution,,\"group:artifact:test@\"\"quoted\"\",comma\",1,500000000,"));
+        Assert.assertEquals("module,group:module<a>,group:artifact:compile@default,1,3000000000,,,,,,", lines.get(4));
+    }
+
+    @Test
+    public void testLocale() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            // Arabic-Indic digits
+            Locale.setDefault(Locale.forLanguageTag("ar-SA-u-nu-arab"));
+            String json = new String(Files.readAllBytes(new JsonReporter().report(report, temporaryFolder.getRoot()).toPath()),
+                    StandardCharsets.UTF_8);
+            Assert.assertTrue(json, json.contains("\"count\": 2, \"total\": 3000000000,"));
+            List<String> lines = Files.readAllLines(new CsvReporter().report(report, temporaryFolder.getRoot()).toPath(), StandardCharsets.UTF_8);
+            Assert.assertEquals("module,group:module<a>,group:artifact:compile@default,1,3000000000,,,,,,", lines.get(4));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testJUnit() throws IOException {
+        File file = new JUnitReporter().report(report, temporaryFolder.getRoot());
+        Assert.assertEquals("TEST-mojo-timer.xml", file.getName());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", lines.get(0));
+        Assert.assertEquals("  <testsuite name=\"mojo-timer\" tests=\"3\" failures=\"0\" errors=\"0\" time=\"6.500\">", lines.get(2));
+        Assert.assertEquals("    <testcase classname=\"mojo-timer\" name=\"group:artifact:compile@default\" time=\"3.000\"/>", lines.get(3));
+        Assert.assertEquals("  <testsuite name=\"group:module&lt;a&gt;\" tests=\"2\" failures=\"0\" errors=\"0\" time=\"3.500\">", lines.get(7));
+        Assert.assertEquals("    <testcase classname=\"group:module&lt;a&gt;\" name=\"group:artifact:test@&quot;quoted&quot;,comma\" time=\"0.500\"/>",
+                lines.get(9));
+        Assert.assertEquals("</testsuites>", lines.get(lines.size() - 1));
+    }
+}
@@ -0,0 +1,60 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResolverStatisticsTest {
+
+    private ResolverStatistics subject = new ResolverStatistics();
+
+    @Test
+    public void testArtifacts() {
+        Assert.assertTrue(subject.isEmpty());
+
+        subject.artifactResolved(resource("local", RepositoryResource.Origin.LOCAL, false, false), 1L);
+        subject.artifactResolved(resource("local", RepositoryResource.Origin.LOCAL, false, false), 2L);
+        subject.artifactResolved(resource("local", RepositoryResource.Origin.LOCAL, false, false), 3L);
+        subject.artifactResolved(resource("central", RepositoryResource.Origin.REMOTE, false, false), 100L);
+        subject.artifactResolved(resource("workspace", RepositoryResource.Origin.WORKSPACE, false, false), 4L);
+        subject.artifactResolved(resource(null, RepositoryResource.Origin.NONE, true, false), 50L);
+        Assert.assertFalse(subject.isEmpty());
+
+        Assert.assertEquals(6L, subject.getResolutions());
+        Assert.assertEquals(160L, subject.getResolutionTime());
+        Assert.assertEquals(3L, subject.getLocal());
+        Assert.assertEquals(1L, subject.getRemote());
+        Assert.assertEquals(1L, subject.getWorkspace());
+        Assert.assertEquals(1L, subject.getUnresolved());
+        Assert.assertEquals(0.75, subject.getLocalHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testMetadata() {
+        subject.metadataResolved(resource("central", RepositoryResource.Origin.REMOTE, false, true), 200L);
+        subject.metadataDownloaded(resource("central", RepositoryResource.Origin.REMOTE, false, true), 150L);
+        subject.metadataResolved(resource("central", RepositoryResource.Origin.REMOTE, false, false), 100L);
+        subject.metadataDownloaded(resource("central", RepositoryResource.Origin.REMOTE, false, false), 80L);
+        subject.metadataResolved(resource("local", RepositoryResource.Origin.LOCAL, false, false), 5L);
+        subject.metadataInvalid(resource("central", RepositoryResource.Origin.REMOTE, false, false));
+
+        Assert.assertEquals(0.0, subject.getLocalHitRatio(), 0.0001);
+        Assert.assertEquals(305L, subject.getMetadataTime());
+
+        List<ResolverStatistics.Repository> repositories = subject.getRepositories();
+        Assert.assertEquals(2, repositories.size());
+        ResolverStatistics.Repository central = repositories.get(0);
+        Assert.assertEquals("central", central.getId());
+        Assert.assertEquals(2L, central.getChecks());
+        Assert.assertEquals(300L, central.getCheckTime());
+        Assert.assertEquals(2L, central.getDownloads());
+        Assert.assertEquals(230L, central.getDownloadTime());
+        Assert.assertEquals(1L, central.getSnapshotDownloads());
+        Assert.assertEquals(1L, central.getInvalid());
+        Assert.assertEquals("local", repositories.get(1).getId());
+    }
+
+    private static RepositoryResource resource(String repository, RepositoryResource.Origin origin, boolean failed, boolean snapshot) {
+        return new RepositoryResource("group:artifact:jar:1.0", repository, origin, -1, failed, snapshot);
+    }
+}
@@ -0,0 +1,55 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourceUsageTest {
+
+    private ResourceUsage subject = new ResourceUsage();
+
+    @Test
+    public void testRecord() {
+        Assert.assertTrue(subject.isEmpty());
+        subject.record("compile", 2_000_000_000L, new ResourceUsage.Snapshot(100L, 1000L, 1L, 5_000_000L),
+                new ResourceUsage.Snapshot(1_500_000_100L, 1_049_577_000L, 3L, 25_000_000L));
+        subject.record("compile", 1_000_000_000L, new ResourceUsage.Snapshot(0L, 0L, 3L, 25_000_000L),
+                new ResourceUsage.Snapshot(900_000_000L, 0L, 3L, 25_000_000L));
+        subject.record("resources", 4_000_000_000L, new ResourceUsage.Snapshot(0L, 0L, 0L, 0L),
+                new ResourceUsage.Snapshot(100_000_000L, 1024L, 0L, 0L));
+        Assert.assertFalse(subject.isEmpty());
+
+        List<ResourceUsage.Mojo> mojos = subject.getMojos();
+        Assert.assertEquals(2, mojos.size());
+        Assert.assertEquals("resources", mojos.get(0).getName());
+        ResourceUsage.Mojo compile = mojos.get(1);
+        Assert.assertEquals(2L, compile.getCount());
+        Assert.assertEquals(3_000_000_000L, compile.getWall());
+        Assert.assertEquals(2_400_000_000L, compile.getCpu());
+        Assert.assertEquals(0.8, compile.getCpuRatio(), 0.0001);
+        Assert.assertEquals(1_049_576_000L, compile.getAllocated());
+        Assert.assertEquals(2L, compile.getGcCount());
+        Assert.assertEquals(20_000_000L, compile.getGcTime());
+    }
+
+    @Test
+    public void testSnapshot() {
+        ResourceUsage.Snapshot start = subject.snapshot();
+        long sum = 0;
+        byte[][] garbage = new byte[64][];
+        for (int i = 0; i < 1_000_000; i++) {
+            sum += i % 7;
+            garbage[i % garbage.length] = new byte[128];
+        }
+        subject.record("busy", 1_000_000_000L, start, subject.snapshot());
+        Assert.assertTrue(sum > 0);
+
+        ResourceUsage.Mojo busy = subject.getMojos().get(0);
+        if (subject.isCpuTimeSupported()) {
+            Assert.assertTrue(busy.getCpu() > 0);
+        }
+        if (subject.isAllocationSupported()) {
+            Assert.assertTrue(busy.getAllocated() >= 128L * 1_000_000);
+        }
+    }
+}
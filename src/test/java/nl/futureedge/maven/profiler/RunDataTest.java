@@ -0,0 +1,70 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RunDataTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteRead() throws IOException {
+        ExecutionStatistics executions = new ExecutionStatistics();
+        for (long duration = 1; duration <= 1000; duration++) {
+            executions.record("group:compiler:compile@default-compile", duration * 1_000_000L);
+        }
+        executions.record("maven:dependency-resolution", 5_000L);
+        ModuleMatrix modules = new ModuleMatrix();
+        modules.record("group:module", "group:compiler:compile@default-compile", 300_000_000L);
+        modules.record("group:module", "group:jar:jar@default-jar", 20_000_000L);
+
+        File file = new File(temporaryFolder.getRoot(), "target/mojo-timer.dat");
+        RunData.write(file, 1234L, "node-a", "abc123", executions, modules);
+        // Compact: the histograms only contain the non-empty buckets
+        Assert.assertTrue(file.length() < 4096);
+
+        List<String> visited = new ArrayList<>();
+        RunData.read(file, new RunData.Visitor() {
+            @Override
+            public void run(long timestamp, String node, String commit) {
+                visited.add("run " + timestamp + " " + node + " " + commit);
+            }
+
+            @Override
+            public void execution(String identifier, long count, long total, long min, long max, Histogram histogram) {
+                visited.add("execution " + identifier + " " + count + " " + total + " " + min + " " + max + " " + histogram.getCount()
+                        + " " + histogram.getValueAtPercentile(50));
+            }
+
+            @Override
+            public void module(String module, String mojo, long count, long total) {
+                visited.add("module " + module + " " + mojo + " " + count + " " + total);
+            }
+        });
+
+        long p50 = executions.get("group:compiler:compile@default-compile").getHistogram().getValueAtPercentile(50);
+        Assert.assertEquals(5, visited.size());
+        Assert.assertEquals("run 1234 node-a abc123", visited.get(0));
+        Assert.assertEquals("execution group:compiler:compile@default-compile 1000 500500000000 1000000 1000000000 1000 " + p50, visited.get(1));
+        Assert.assertEquals("execution maven:dependency-resolution 1 5000 5000 5000 1 " + Histogram.highestValueOf(Histogram.indexOf(5000)),
+                visited.get(2));
+        Assert.assertEquals("module group:module group:compiler:compile@default-compile 1 300000000", visited.get(3));
+        Assert.assertEquals("module group:module group:jar:jar@default-jar 1 20000000", visited.get(4));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        File file = temporaryFolder.newFile("mojo-timer.dat");
+        Files.write(file.toPath(), "not a data file".getBytes(StandardCharsets.UTF_8));
+        RunData.read(file, null);
+    }
+}
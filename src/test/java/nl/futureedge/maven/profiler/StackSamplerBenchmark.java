@@ -0,0 +1,85 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead of the {@link StackSampler} on a mojo: the throughput of a CPU bound workload on a thread that is
+ * sampled, at the default interval (20 ms) and the smallest interval (1 ms), compared to a thread that is not sampled
+ * (interval 0). At the default interval the throughput should be within a few percent of the unsampled throughput.
+ *
+ * <p>
+ * Not a unit test; run the main method using the test classpath.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class StackSamplerBenchmark {
+
+    @Param({"0", "20", "1"})
+    private int interval;
+
+    private StackSampler sampler;
+    private long seed = 42;
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StackSamplerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void startSampler() {
+        if (interval > 0) {
+            sampler = new StackSampler(TimeUnit.MILLISECONDS.toNanos(interval), 128);
+            // Runs on the benchmark thread; the workload is sampled as if it were a mojo
+            sampler.started("benchmark", "org.example:benchmark-plugin:work@default", Thread.currentThread(), System.nanoTime());
+            sampler.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopSampler() {
+        if (sampler != null) {
+            sampler.stop();
+            sampler = null;
+        }
+    }
+
+    @Benchmark
+    public long work() {
+        // Some stack depth, so sampling has frames to walk
+        return recurse(16);
+    }
+
+    private long recurse(final int depth) {
+        if (depth == 0) {
+            long result = seed;
+            for (int i = 0; i < 1_000; i++) {
+                result ^= result << 13;
+                result ^= result >>> 7;
+                result ^= result << 17;
+            }
+            seed = result;
+            return result;
+        }
+        return recurse(depth - 1) + depth;
+    }
+}
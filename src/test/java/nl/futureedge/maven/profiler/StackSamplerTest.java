@@ -0,0 +1,105 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StackSamplerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCollapse() {
+        StackTraceElement[] stackTrace = new StackTraceElement[]{
+                new StackTraceElement("com.example.Inner", "leaf", "Inner.java", 10),
+                new StackTraceElement("com.example.Outer", "lambda$run 1", "Outer.java", 20),
+                new StackTraceElement("java.lang.Thread", "run", "Thread.java", 30),
+        };
+        Assert.assertEquals("java.lang.Thread.run;com.example.Outer.lambda$run_1;com.example.Inner.leaf", StackSampler.collapse(stackTrace));
+    }
+
+    @Test
+    public void testSample() throws InterruptedException, IOException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stop = new CountDownLatch(1);
+        Thread mojoThread = new Thread(() -> {
+            started.countDown();
+            awaitStop(stop);
+        });
+        mojoThread.start();
+        started.await();
+        // Same stack in every sample
+        while (mojoThread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        StackSampler subject = new StackSampler(TimeUnit.MILLISECONDS.toNanos(10), 64);
+        try {
+            // Not running a mojo; not sampled
+            subject.sample();
+            Assert.assertEquals(0L, subject.getSamples());
+
+            subject.started("forking@1", "group:source:jar@attach-sources", mojoThread, 0L);
+            subject.started("forked@1", "group:resources:resources@default-resources", mojoThread, 1L);
+            subject.sample();
+            subject.sample();
+            subject.finished("forked@1");
+            subject.sample();
+            subject.finished("forking@1");
+            subject.sample();
+            Assert.assertEquals(3L, subject.getSamples());
+        } finally {
+            stop.countDown();
+            mojoThread.join();
+        }
+
+        File directory = new File(temporaryFolder.getRoot(), "stacks");
+        List<File> files = subject.write(directory);
+        Assert.assertEquals(2, files.size());
+
+        // The last started mojo on a thread is sampled
+        List<String> forked =
+                Files.readAllLines(new File(directory, "group_resources_resources_default-resources.collapsed").toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(1, forked.size());
+        Assert.assertTrue(forked.get(0), forked.get(0).startsWith("java.lang.Thread.run;"));
+        Assert.assertTrue(forked.get(0), forked.get(0).contains("StackSamplerTest.awaitStop;"));
+        Assert.assertTrue(forked.get(0), forked.get(0).endsWith(" 2"));
+
+        List<String> forking =
+                Files.readAllLines(new File(directory, "group_source_jar_attach-sources.collapsed").toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(1, forking.size());
+        Assert.assertTrue(forking.get(0), forking.get(0).endsWith(" 1"));
+    }
+
+    @Test
+    public void testStartStop() throws InterruptedException {
+        StackSampler subject = new StackSampler(TimeUnit.MILLISECONDS.toNanos(1), 64);
+        subject.started("main@1", "group:artifact:goal@execution", Thread.currentThread(), 0L);
+        subject.start();
+        Thread.sleep(100);
+        subject.stop();
+
+        long samples = subject.getSamples();
+        Assert.assertTrue(samples > 0);
+        Assert.assertTrue(subject.getSamplingTime() > 0);
+        Thread.sleep(20);
+        Assert.assertEquals(samples, subject.getSamples());
+    }
+
+    private static void awaitStop(CountDownLatch stop) {
+        try {
+            stop.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package nl.futureedge.maven.profiler;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransferStatisticsTest {
+
+    private TransferStatistics subject = new TransferStatistics(2);
+
+    @Test
+    public void test() {
+        Assert.assertTrue(subject.isEmpty());
+
+        // Parallel transfers: a and b overlap
+        subject.record(resource("group:a:jar:1.0", "central", 2 * 1024 * 1024, false), 0L, 1_000_000_000L);
+        subject.record(resource("group:b:jar:1.0", "central", 1024 * 1024, false), 500_000_000L, 3_500_000_000L);
+        subject.record(resource("group:c:jar:1.0", "central", -1, false), 4_000_000_000L, 4_500_000_000L);
+        subject.record(resource("group:d:jar:1.0", "central", -1, true), 0L, 9_000_000_000L);
+        subject.record(resource("group:a:jar:1.0", "mirror", 1024 * 1024, false), 0L, 2_000_000_000L);
+        Assert.assertFalse(subject.isEmpty());
+
+        List<TransferStatistics.Repository> repositories = subject.getRepositories();
+        Assert.assertEquals(2, repositories.size());
+        TransferStatistics.Repository central = repositories.get(0);
+        Assert.assertEquals("central", central.getId());
+        Assert.assertEquals(3L, central.getCount());
+        Assert.assertEquals(1L, central.getFailed());
+        Assert.assertEquals(3L * 1024 * 1024, central.getBytes());
+        Assert.assertEquals(4_500_000_000L, central.getDuration());
+        // Over the wall clock time transfers were in progress (0 - 3.5 and 4 - 4.5 seconds)
+        Assert.assertEquals(4_000_000_000L, central.getBusyTime());
+        Assert.assertEquals(3.0 / 4.0, central.getThroughput(), 0.0001);
+
+        // Failed transfers are not included
+        List<TransferStatistics.Transfer> slowest = subject.getSlowest();
+        Assert.assertEquals(2, slowest.size());
+        Assert.assertEquals("group:b:jar:1.0 (central)", slowest.get(0).getResource().toString());
+        Assert.assertEquals(3_000_000_000L, slowest.get(0).getDuration());
+        Assert.assertEquals("group:a:jar:1.0 (mirror)", slowest.get(1).getResource().toString());
+    }
+
+    private static RepositoryResource resource(String name, String repository, long size, boolean failed) {
+        return new RepositoryResource(name, repository, RepositoryResource.Origin.REMOTE, size, failed, false);
+    }
+
+    @Test
+    public void testBusyTime() {
+        RepositoryResource resource = resource("group:a:jar:1.0", "central", 1024, false);
+        subject.record(resource, 10L, 20L);
+        subject.record(resource, 30L, 40L);
+        subject.record(resource, 50L, 60L);
+        // Spans (and merges) the first two intervals
+        subject.record(resource, 15L, 35L);
+        // Within an interval
+        subject.record(resource, 52L, 55L);
+        // Adjacent
+        subject.record(resource, 60L, 70L);
+
+        TransferStatistics.Repository central = subject.getRepositories().get(0);
+        Assert.assertEquals(63L, central.getDuration());
+        Assert.assertEquals(50L, central.getBusyTime());
+    }
+}
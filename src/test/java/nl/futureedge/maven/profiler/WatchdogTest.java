@@ -0,0 +1,74 @@
+package nl.futureedge.maven.profiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WatchdogTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testLimit() {
+        Watchdog subject = new Watchdog(Collections.singletonMap("slow", 10 * MINUTE), 2 * MINUTE, 2.5, MINUTE, MINUTE, null,
+                temporaryFolder.getRoot());
+        Assert.assertEquals(25 * MINUTE, subject.getLimit("slow"));
+        Assert.assertEquals(5 * MINUTE, subject.getLimit("unknown"));
+
+        // Never within the minimum
+        subject = new Watchdog(Collections.singletonMap("fast", 1_000_000L), 2 * MINUTE, 3, MINUTE, MINUTE, null, temporaryFolder.getRoot());
+        Assert.assertEquals(MINUTE, subject.getLimit("fast"));
+        subject = new Watchdog(Collections.singletonMap("fast", 1_000_000L), 2 * MINUTE, 3, 0, MINUTE, null, temporaryFolder.getRoot());
+        Assert.assertEquals(3_000_000L, subject.getLimit("fast"));
+    }
+
+    @Test
+    public void testCheck() throws IOException {
+        File statusFile = new File(temporaryFolder.getRoot(), "target/status.txt");
+        File dumpDirectory = new File(temporaryFolder.getRoot(), "target");
+        Watchdog subject = new Watchdog(Collections.emptyMap(), 2 * MINUTE, 3, MINUTE, MINUTE, statusFile, dumpDirectory);
+
+        subject.started("surefire@1", "group:surefire:test@default-test", "group:module", Thread.currentThread(), 0L);
+        subject.started("compile@2", "group:compiler:compile@default-compile", "group:other", Thread.currentThread(), 4 * MINUTE);
+        subject.started("jar@3", "group:jar:jar@default-jar", "group:other", Thread.currentThread(), 5 * MINUTE);
+        subject.finished("jar@3");
+
+        List<Watchdog.Running> running = subject.check(7 * MINUTE);
+        Assert.assertEquals(2, running.size());
+        Assert.assertEquals("group:surefire:test@default-test", running.get(0).getMojo());
+        Assert.assertTrue(running.get(0).isDumped());
+        Assert.assertFalse(running.get(1).isDumped());
+
+        List<String> status = Files.readAllLines(statusFile.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(3, status.size());
+        Assert.assertTrue(status.get(0).startsWith("Running mojos at "));
+        Assert.assertEquals("[  7:00 min] budget:   6:00 min - group:surefire:test@default-test (group:module) on "
+                + Thread.currentThread().getName(), status.get(1));
+
+        File[] dumps = dumpDirectory.listFiles((directory, name) -> name.startsWith("mojo-timer-dump-"));
+        Assert.assertEquals(1, dumps.length);
+        List<String> dump = Files.readAllLines(dumps[0].toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals("Mojo group:surefire:test@default-test (group:module) running for 7:00 min (budget: 6:00 min)", dump.get(0));
+        // Thread of the mojo first, with its complete stack
+        Assert.assertTrue(dump.get(2), dump.get(2).startsWith("\"" + Thread.currentThread().getName() + "\" #" + Thread.currentThread().getId()));
+        Assert.assertTrue(dump.stream().anyMatch(line -> line.contains("WatchdogTest.testCheck")));
+
+        // Only one dump per mojo execution
+        subject.check(8 * MINUTE);
+        Assert.assertEquals(1, dumpDirectory.listFiles((directory, name) -> name.startsWith("mojo-timer-dump-")).length);
+
+        subject.stop();
+        Assert.assertFalse(statusFile.exists());
+    }
+}